@@ -0,0 +1,187 @@
+package com.stenway.loextensions.formats;
+
+import java.util.Random;
+
+// Compares the WsvChar lookup table with the comparison chain it replaced,
+// both for single characters and in the WsvCharIterator tokenizer loops.
+// Only needs the ReliableTXT and WSV sources, no LibreOffice classes:
+//   javac -d build\bench src\ReliableTxt.java src\Wsv.java bench\WsvCharBench.java
+//   java -cp build\bench com.stenway.loextensions.formats.WsvCharBench
+class WsvCharBench {
+	private static final int CHAR_COUNT = 20000000;
+	private static final int ROUNDS = 20;
+
+	private static final String[] PIECES = {"a", "b", "xyz", "123", " ", "\t", "#", "\"", "\u00E4", "\u00E9", "\u00A0", "\u3000", "\u2028", "\u20AC", "z"};
+
+	// The classification WsvSerializer and WsvCharIterator used before the table.
+	private static boolean isWhitespaceChain(int c) {
+		return c == 0x09 ||
+				(c >= 0x0B && c <= 0x0D) ||
+				c == 0x0020 ||
+				c == 0x0085 ||
+				c == 0x00A0 ||
+				c == 0x1680 ||
+				(c >= 0x2000 && c <= 0x200A) ||
+				c == 0x2028 ||
+				c == 0x2029 ||
+				c == 0x202F ||
+				c == 0x205F ||
+				c == 0x3000;
+	}
+
+	private static boolean isSpecialChain(int c) {
+		return c == '\n' || isWhitespaceChain(c) || c == '"' || c == '#';
+	}
+
+	private static char[] createMixedChars(Random random) {
+		StringBuilder sb = new StringBuilder(CHAR_COUNT + 8);
+		while (sb.length() < CHAR_COUNT) {
+			sb.append(PIECES[random.nextInt(PIECES.length)]);
+		}
+		char[] chars = new char[CHAR_COUNT];
+		sb.getChars(0, CHAR_COUNT, chars, 0);
+		return chars;
+	}
+
+	private static String createDocument(Random random, int lineCount) {
+		StringBuilder sb = new StringBuilder();
+		for (int i=0; i<lineCount; i++) {
+			if (i > 0) {
+				sb.append('\n');
+			}
+			for (int j=0; j<8; j++) {
+				if (j > 0) {
+					sb.append(' ');
+				}
+				sb.append(j % 3 == 0 ? "\u00C4rger" : "value").append(random.nextInt(1000000)).append("_abcdefghijklmnopqrstuvwxyz");
+			}
+		}
+		return sb.toString();
+	}
+
+	// The skipWhitespace and readValue loops of WsvCharIterator before the
+	// table, without creating the value string.
+	static class ChainCharIterator extends ReliableTxtCharIterator {
+		ChainCharIterator(String text) {
+			super(text);
+		}
+		
+		public boolean skipWhitespace() {
+			int startIndex = index;
+			while (true) {
+				if (isEndOfText()) break;
+				char c = text.charAt(index);
+				if (c == '\n') break;
+				if (!isWhitespaceChain(c)) break;
+				index++;
+			}
+			return index > startIndex;
+		}
+		
+		public void skipValue() {
+			int startIndex = index;
+			while (true) {
+				if (isEndOfText()) {
+					break;
+				}
+				char c = text.charAt(index);
+				if (isWhitespaceChain(c) || c == '\n' || c == '#') {
+					break;
+				}
+				if (c == '\"') {
+					throw new RuntimeException("Invalid double quote after value");
+				}
+				index++;
+			}
+			if (index == startIndex) {
+				throw new RuntimeException("Invalid value");
+			}
+		}
+	}
+
+	private static int tokenizeChain(String text) {
+		ChainCharIterator iterator = new ChainCharIterator(text);
+		int valueCount = 0;
+		while (!iterator.isEndOfText()) {
+			iterator.skipWhitespace();
+			if (iterator.tryReadChar('\n') || iterator.isEndOfText()) {
+				continue;
+			}
+			iterator.skipValue();
+			valueCount++;
+		}
+		return valueCount;
+	}
+
+	private static int tokenizeTable(String text) {
+		WsvCharIterator iterator = new WsvCharIterator(text);
+		int valueCount = 0;
+		while (!iterator.isEndOfText()) {
+			iterator.skipWhitespace();
+			if (iterator.tryReadChar('\n') || iterator.isEndOfText()) {
+				continue;
+			}
+			iterator.skipValue();
+			valueCount++;
+		}
+		return valueCount;
+	}
+
+	private static int countChain(char[] chars) {
+		int count = 0;
+		for (int i=0; i<chars.length; i++) {
+			if (isSpecialChain(chars[i])) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private static int countTable(char[] chars) {
+		int count = 0;
+		for (int i=0; i<chars.length; i++) {
+			if (WsvChar.isSpecial(chars[i])) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private interface Measurement {
+		long run();
+	}
+
+	private static void report(String name, Measurement measurement) {
+		long best = Long.MAX_VALUE;
+		long check = 0;
+		for (int i=0; i<ROUNDS; i++) {
+			long start = System.nanoTime();
+			check += measurement.run();
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		System.out.println(String.format("%-36s best %8.2f ms  (check %d)", name, best / 1e6, check));
+	}
+
+	public static void main(String[] args) {
+		Random random = new Random(9);
+		char[] chars = createMixedChars(random);
+		if (countChain(chars) != countTable(chars)) {
+			throw new RuntimeException("Classifications differ");
+		}
+		for (int c=0; c<=0xFFFF; c++) {
+			if (isSpecialChain(c) != WsvChar.isSpecial(c) || isWhitespaceChain(c) != WsvChar.isWhitespace(c)) {
+				throw new RuntimeException("Classifications differ at "+c);
+			}
+		}
+		String document = createDocument(random, 100000);
+		if (tokenizeChain(document) != tokenizeTable(document)) {
+			throw new RuntimeException("Tokenizers differ");
+		}
+
+		System.out.println(System.getProperty("java.vm.name")+" "+System.getProperty("java.version")+", best of "+ROUNDS);
+		report("classify chars, comparison chain", () -> countChain(chars));
+		report("classify chars, lookup table", () -> countTable(chars));
+		report("tokenize values, comparison chain", () -> tokenizeChain(document));
+		report("tokenize values, lookup table", () -> tokenizeTable(document));
+	}
+}
@@ -113,14 +113,19 @@ public class ImportExportFilter {
 				}
 				SpreadsheetDocument sSpreadsheetDocument = new SpreadsheetDocument(spreadsheetDocumentSync, false);
 				if (isImportSync) {
-					if (nameSync.equals("WsvFilter")) {
-						new WsvImporter(sSpreadsheetDocument, stream).importWsv();
-					} else if (nameSync.equals("TblFilter")) {
-						new TblImporter(sSpreadsheetDocument, stream).importTbl();
-					} else if (nameSync.equals("TblsFilter")) {
-						new TblsImporter(sSpreadsheetDocument, stream).importTbls();
-					} else {
-						throw new RuntimeException("Unknown filter '"+nameSync+"'");
+					ImportTransaction transaction = sSpreadsheetDocument.beginImportTransaction();
+					try {
+						if (nameSync.equals("WsvFilter")) {
+							new WsvImporter(sSpreadsheetDocument, stream).importWsv();
+						} else if (nameSync.equals("TblFilter")) {
+							new TblImporter(sSpreadsheetDocument, stream).importTbl();
+						} else if (nameSync.equals("TblsFilter")) {
+							new TblsImporter(sSpreadsheetDocument, stream).importTbls();
+						} else {
+							throw new RuntimeException("Unknown filter '"+nameSync+"'");
+						}
+					} finally {
+						transaction.close();
 					}
 				} else {
 					throw new RuntimeException("Not implemented");
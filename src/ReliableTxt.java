@@ -13,13 +13,13 @@ import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
 import java.nio.charset.CodingErrorAction;
 import java.util.Objects;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.Objects;
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.nio.charset.CharacterCodingException;
 import java.nio.charset.Charset;
@@ -34,6 +34,20 @@ import java.nio.file.OpenOption;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ThreadLocalRandom;
 
 enum ReliableTxtEncoding {
 	UTF_8 {
@@ -103,10 +117,208 @@ class ReliableTxtEncoder {
 			throw new ReliableTxtException("Text contains invalid characters");
 		}
 	}
+	
+	public static void encode(CharSequence text, ReliableTxtEncoding encoding, OutputStream outputStream) throws IOException {
+		Objects.requireNonNull(outputStream);
+		encode(text, encoding, Channels.newChannel(outputStream));
+		outputStream.flush();
+	}
+	
+	public static void encode(CharSequence text, ReliableTxtEncoding encoding, WritableByteChannel channel) throws IOException {
+		Objects.requireNonNull(text);
+		ReliableTxtEncodingWriter writer = new ReliableTxtEncodingWriter(channel, encoding);
+		writer.append(text);
+		writer.finish();
+	}
+}
+
+class ReliableTxtEncodingWriter extends Writer {
+	private static final int DEFAULT_BUFFER_SIZE = 65536;
+	
+	private final WritableByteChannel channel;
+	private final CharsetEncoder encoder;
+	private final CharBuffer charBuffer;
+	private final ByteBuffer byteBuffer;
+	private boolean finished;
+	
+	public ReliableTxtEncodingWriter(WritableByteChannel channel, ReliableTxtEncoding encoding) {
+		this(channel, encoding, DEFAULT_BUFFER_SIZE);
+	}
+	
+	public ReliableTxtEncodingWriter(WritableByteChannel channel, ReliableTxtEncoding encoding, int bufferSize) {
+		Objects.requireNonNull(channel);
+		Objects.requireNonNull(encoding);
+		if (bufferSize < 16) { throw new IllegalArgumentException("Buffer size must be at least 16"); }
+		this.channel = channel;
+		encoder = encoding.getCharset().newEncoder();
+		charBuffer = CharBuffer.allocate(bufferSize);
+		byteBuffer = ByteBuffer.allocate(bufferSize);
+		charBuffer.put((char)0xFEFF);
+	}
+	
+	@Override
+	public void write(int c) throws IOException {
+		ensureNotFinished();
+		if (!charBuffer.hasRemaining()) {
+			encodeChars(false);
+		}
+		charBuffer.put((char)c);
+	}
+	
+	@Override
+	public void write(char[] chars, int offset, int length) throws IOException {
+		if (offset < 0 || length < 0 || length > chars.length - offset) {
+			throw new IndexOutOfBoundsException();
+		}
+		ensureNotFinished();
+		while (length > 0) {
+			if (!charBuffer.hasRemaining()) {
+				encodeChars(false);
+			}
+			int count = Math.min(length, charBuffer.remaining());
+			charBuffer.put(chars, offset, count);
+			offset += count;
+			length -= count;
+		}
+	}
+	
+	@Override
+	public void write(String str, int offset, int length) throws IOException {
+		append(str, offset, offset + length);
+	}
+	
+	@Override
+	public Writer append(CharSequence text) throws IOException {
+		Objects.requireNonNull(text);
+		return append(text, 0, text.length());
+	}
+	
+	@Override
+	public Writer append(CharSequence text, int startIndex, int endIndex) throws IOException {
+		if (startIndex < 0 || startIndex > endIndex || endIndex > text.length()) {
+			throw new IndexOutOfBoundsException();
+		}
+		ensureNotFinished();
+		CharBuffer source = CharBuffer.wrap(text, startIndex, endIndex);
+		while (source.hasRemaining()) {
+			if (!charBuffer.hasRemaining()) {
+				encodeChars(false);
+			}
+			int count = Math.min(source.remaining(), charBuffer.remaining());
+			int limit = source.limit();
+			source.limit(source.position() + count);
+			charBuffer.put(source);
+			source.limit(limit);
+		}
+		return this;
+	}
+	
+	private void ensureNotFinished() {
+		if (finished) { throw new IllegalStateException("Writer is already finished"); }
+	}
+	
+	private void encodeChars(boolean endOfInput) throws IOException {
+		charBuffer.flip();
+		while (true) {
+			CoderResult result = encoder.encode(charBuffer, byteBuffer, endOfInput);
+			if (result.isError()) {
+				throw new ReliableTxtException("Text contains invalid characters");
+			} else if (result.isOverflow()) {
+				writeBytes();
+			} else {
+				break;
+			}
+		}
+		charBuffer.compact();
+	}
+	
+	private void writeBytes() throws IOException {
+		byteBuffer.flip();
+		while (byteBuffer.hasRemaining()) {
+			channel.write(byteBuffer);
+		}
+		byteBuffer.clear();
+	}
+	
+	@Override
+	public void flush() throws IOException {
+		if (!finished) {
+			encodeChars(false);
+			writeBytes();
+		}
+	}
+	
+	public void finish() throws IOException {
+		if (finished) {
+			return;
+		}
+		encodeChars(true);
+		while (encoder.flush(byteBuffer).isOverflow()) {
+			writeBytes();
+		}
+		writeBytes();
+		finished = true;
+	}
+	
+	@Override
+	public void close() throws IOException {
+		try {
+			finish();
+		} finally {
+			channel.close();
+		}
+	}
+	
+	public static void writeFile(String filePath, ReliableTxtEncoding encoding, ReliableTxtWriteAction action) throws IOException {
+		Objects.requireNonNull(encoding);
+		Objects.requireNonNull(action);
+		Path path = Paths.get(filePath).toAbsolutePath();
+		if (Files.isSymbolicLink(path)) {
+			path = path.toRealPath();
+		}
+		
+		Path tempPath;
+		FileChannel tempChannel;
+		while (true) {
+			tempPath = path.resolveSibling(path.getFileName()+"."+Long.toHexString(ThreadLocalRandom.current().nextLong())+".tmp");
+			try {
+				tempChannel = FileChannel.open(tempPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+				break;
+			} catch (FileAlreadyExistsException e) {
+				// name taken, pick another one
+			}
+		}
+		
+		boolean replaced = false;
+		try {
+			try (ReliableTxtEncodingWriter writer = new ReliableTxtEncodingWriter(tempChannel, encoding)) {
+				action.write(writer);
+				writer.finish();
+				tempChannel.force(false);
+			}
+			try {
+				Files.move(tempPath, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING);
+			}
+			replaced = true;
+		} finally {
+			if (!replaced) {
+				Files.deleteIfExists(tempPath);
+			}
+		}
+	}
+}
+
+interface ReliableTxtWriteAction {
+	void write(ReliableTxtEncodingWriter writer) throws IOException;
 }
 
 class ReliableTxtDecoder {
 	private static final String NO_RELIABLETXT_PREAMBLE = "Document does not have a ReliableTXT preamble";
+	private static final int DEFAULT_BUFFER_SIZE = 65536;
+	private static final int MAX_MAPPED_REGION_SIZE = 1 << 30;
+	private static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
 	
 	public static ReliableTxtEncoding getEncoding(byte[] bytes) {
 		Objects.requireNonNull(bytes);
@@ -180,6 +392,131 @@ class ReliableTxtDecoder {
 		
 		return new Object[] {detectedEncoding, decodedText};
 	}
+	
+	public static Object[] decode(InputStream inputStream) throws IOException {
+		return decode(inputStream, DEFAULT_BUFFER_SIZE);
+	}
+	
+	public static Object[] decode(InputStream inputStream, int bufferSize) throws IOException {
+		Objects.requireNonNull(inputStream);
+		if (bufferSize < 4) { throw new IllegalArgumentException("Buffer size must be at least 4"); }
+		
+		byte[] bytes = new byte[bufferSize];
+		int numPreambleBytes = readFully(inputStream, bytes, 0, 4);
+		ReliableTxtEncoding detectedEncoding = getEncoding(Arrays.copyOf(bytes, numPreambleBytes));
+		byte preambleLength = detectedEncoding.getPreambleLength();
+		
+		CharsetDecoder decoder = detectedEncoding.getCharset().newDecoder();
+		decoder.onMalformedInput(CodingErrorAction.REPORT);
+		decoder.onUnmappableCharacter(CodingErrorAction.REPORT);
+		
+		int sizeHint = Math.max(inputStream.available(), 0);
+		StringBuilder sb = new StringBuilder(sizeHint);
+		ByteBuffer byteBuffer = ByteBuffer.wrap(bytes);
+		byteBuffer.position(preambleLength).limit(numPreambleBytes);
+		byteBuffer.compact();
+		CharBuffer charBuffer = CharBuffer.allocate(bufferSize);
+		boolean endOfInput = false;
+		while (true) {
+			if (!endOfInput) {
+				int numReadBytes = inputStream.read(bytes, byteBuffer.position(), byteBuffer.remaining());
+				if (numReadBytes < 0) {
+					endOfInput = true;
+				} else {
+					byteBuffer.position(byteBuffer.position() + numReadBytes);
+				}
+			}
+			byteBuffer.flip();
+			CoderResult result = decoder.decode(byteBuffer, charBuffer, endOfInput);
+			if (result.isError()) {
+				throw new ReliableTxtException("The "+detectedEncoding.name()+" encoded text contains invalid data.");
+			}
+			byteBuffer.compact();
+			charBuffer.flip();
+			sb.append(charBuffer);
+			charBuffer.clear();
+			if (endOfInput && result.isUnderflow()) {
+				break;
+			}
+		}
+		while (decoder.flush(charBuffer).isOverflow()) {
+			charBuffer.flip();
+			sb.append(charBuffer);
+			charBuffer.clear();
+		}
+		charBuffer.flip();
+		sb.append(charBuffer);
+		
+		return new Object[] {detectedEncoding, sb.toString()};
+	}
+	
+	public static Object[] decode(FileChannel channel) throws IOException {
+		Objects.requireNonNull(channel);
+		long size = channel.size();
+		MappedByteBuffer region = mapRegion(channel, 0, size);
+		byte[] preambleBytes = new byte[(int)Math.min(4, size)];
+		region.get(preambleBytes);
+		ReliableTxtEncoding detectedEncoding = getEncoding(preambleBytes);
+		region.position(detectedEncoding.getPreambleLength());
+		
+		CharsetDecoder decoder = detectedEncoding.getCharset().newDecoder();
+		decoder.onMalformedInput(CodingErrorAction.REPORT);
+		decoder.onUnmappableCharacter(CodingErrorAction.REPORT);
+		
+		long maxCharCount = detectedEncoding == ReliableTxtEncoding.UTF_8 ? size : 
+				detectedEncoding == ReliableTxtEncoding.UTF_32 ? size / 4 : size / 2;
+		CharBuffer charBuffer = CharBuffer.allocate((int)Math.min(maxCharCount, MAX_ARRAY_LENGTH));
+		long regionStart = 0;
+		while (true) {
+			boolean endOfInput = regionStart + region.limit() == size;
+			CoderResult result = decoder.decode(region, charBuffer, endOfInput);
+			if (result.isError()) {
+				throw new ReliableTxtException("The "+detectedEncoding.name()+" encoded text contains invalid data.");
+			} else if (result.isOverflow()) {
+				charBuffer = grow(charBuffer);
+			} else if (endOfInput) {
+				break;
+			} else {
+				regionStart += region.position();
+				region = mapRegion(channel, regionStart, size - regionStart);
+			}
+		}
+		while (decoder.flush(charBuffer).isOverflow()) {
+			charBuffer = grow(charBuffer);
+		}
+		charBuffer.flip();
+		String decodedText = charBuffer.toString();
+		
+		return new Object[] {detectedEncoding, decodedText};
+	}
+	
+	static MappedByteBuffer mapRegion(FileChannel channel, long position, long remainingSize) throws IOException {
+		long regionSize = Math.min(remainingSize, MAX_MAPPED_REGION_SIZE);
+		return channel.map(FileChannel.MapMode.READ_ONLY, position, regionSize);
+	}
+	
+	private static CharBuffer grow(CharBuffer charBuffer) {
+		if (charBuffer.capacity() == MAX_ARRAY_LENGTH) {
+			throw new ReliableTxtException("Text is too large");
+		}
+		int newCapacity = (int)Math.min(Math.max(charBuffer.capacity() * 2L, 16), MAX_ARRAY_LENGTH);
+		CharBuffer newCharBuffer = CharBuffer.allocate(newCapacity);
+		charBuffer.flip();
+		newCharBuffer.put(charBuffer);
+		return newCharBuffer;
+	}
+	
+	private static int readFully(InputStream inputStream, byte[] bytes, int offset, int length) throws IOException {
+		int numReadBytes = 0;
+		while (numReadBytes < length) {
+			int count = inputStream.read(bytes, offset + numReadBytes, length - numReadBytes);
+			if (count < 0) {
+				break;
+			}
+			numReadBytes += count;
+		}
+		return numReadBytes;
+	}
 }
 
 class ReliableTxtDocument {
@@ -284,8 +621,7 @@ class ReliableTxtDocument {
 	public void save(String filePath) throws IOException {
 		Objects.requireNonNull(filePath);
 		
-		byte[] bytes = getBytes();
-		Files.write(Paths.get(filePath),bytes);
+		ReliableTxtEncodingWriter.writeFile(filePath, encoding, writer -> writer.append(text));
 	}
 	
 	public static ReliableTxtDocument load(String filePath) throws IOException {
@@ -294,6 +630,26 @@ class ReliableTxtDocument {
 		byte[] bytes = Files.readAllBytes(Paths.get(filePath));
 		return new ReliableTxtDocument(bytes);
 	}
+	
+	public static ReliableTxtDocument loadMapped(String filePath) throws IOException {
+		Objects.requireNonNull(filePath);
+		
+		try (FileChannel channel = FileChannel.open(Paths.get(filePath))) {
+			Object[] decoderResult = ReliableTxtDecoder.decode(channel);
+			
+			ReliableTxtDocument document = new ReliableTxtDocument((String)decoderResult[1]);
+			document.setEncoding((ReliableTxtEncoding)decoderResult[0]);
+			return document;
+		}
+	}
+	
+	public static ReliableTxtDocument load(InputStream inputStream) throws IOException {
+		Object[] decoderResult = ReliableTxtDecoder.decode(inputStream);
+		
+		ReliableTxtDocument document = new ReliableTxtDocument((String)decoderResult[1]);
+		document.setEncoding((ReliableTxtEncoding)decoderResult[0]);
+		return document;
+	}
 
 	public static void save(String text, String filePath) throws IOException {
 		new ReliableTxtDocument(text).save(filePath);
@@ -336,88 +692,316 @@ class ReliableTxtLines {
 
 class ReliableTxtCharIterator {
 	protected final StringBuilder sb = new StringBuilder();
-	protected final int[] chars;
+	protected final String text;
+	protected final int startIndex;
+	protected final int endIndex;
 	protected int index;
 	
+	private int startLineIndex;
+	private int lineCount;
+	private int lineStart;
+	private int codePointCacheIndex;
+	private int codePointCacheCount;
+	
 	public ReliableTxtCharIterator(String text) {
+		this(text, 0, text.length());
+	}
+	
+	public ReliableTxtCharIterator(String text, int startIndex, int endIndex) {
 		Objects.requireNonNull(text);
-		chars = text.codePoints().toArray();
+		if (startIndex < 0 || startIndex > endIndex || endIndex > text.length()) {
+			throw new IndexOutOfBoundsException("Invalid range "+startIndex+" to "+endIndex);
+		}
+		this.text = text;
+		this.startIndex = startIndex;
+		this.endIndex = endIndex;
+		index = startIndex;
+		
+		startLineIndex = startIndex == 0 ? 0 : -1;
+		lineStart = text.lastIndexOf('\n', startIndex-1) + 1;
 	}
 	
 	public String getText() {
-		return new String(chars, 0, chars.length);
+		return text;
 	}
-
-	public int[] getLineInfo() {
-		int lineIndex = 0;
-		int linePosition = 0;
-		for (int i=0; i<index; i++) {
-			if (chars[i] == '\n') {
-				lineIndex++;
-				linePosition = 0;
-			} else {
-				linePosition++;
+	
+	public int getCodePointIndex() {
+		if (index < codePointCacheIndex) {
+			codePointCacheIndex = 0;
+			codePointCacheCount = 0;
+		}
+		codePointCacheCount += text.codePointCount(codePointCacheIndex, index);
+		codePointCacheIndex = index;
+		return codePointCacheCount;
+	}
+	
+	public int getLineIndex() {
+		if (startLineIndex < 0) {
+			startLineIndex = 0;
+			for (int i=0; i<startIndex; i++) {
+				if (text.charAt(i) == '\n') {
+					startLineIndex++;
+				}
 			}
 		}
-		return new int[] {lineIndex, linePosition};
+		return startLineIndex + lineCount;
+	}
+	
+	public int getLinePosition() {
+		return text.codePointCount(lineStart, index);
+	}
+
+	public int[] getLineInfo() {
+		return new int[] {getLineIndex(), getLinePosition()};
 	}
 	
 	public boolean isEndOfText() {
-		return index >= chars.length;
+		return index >= endIndex;
 	}
 
 	public boolean isChar(int c) {
 		if (isEndOfText()) return false;
-		return chars[index] == c;
+		return text.charAt(index) == c;
 	}
 	
 	public boolean tryReadChar(int c) {
 		if (!isChar(c)) return false;
 		index++;
+		if (c == '\n') {
+			lineCount++;
+			lineStart = index;
+		}
 		return true;
 	}
 }
 
 class ReliableTxtStreamReader implements AutoCloseable {
+	private static final int DEFAULT_BUFFER_SIZE = 65536;
+	
 	public final ReliableTxtEncoding Encoding;
-	BufferedReader reader;
-	StringBuilder sb;
-	boolean endReached;
+	private final ReadableByteChannel channel;
+	private final CharsetDecoder decoder;
+	private final ByteBuffer byteBuffer;
+	private final CharBuffer charBuffer;
+	private final StringBuilder sb = new StringBuilder();
+	private final SeekableByteChannel seekableChannel;
+	private long contentStart = -1;
+	private boolean endOfInput;
+	private boolean decoderFlushed;
+	private boolean endReached;
 	
 	public ReliableTxtStreamReader(String filePath) throws IOException {
-		Encoding = ReliableTxtDecoder.getEncodingFromFile(filePath);
-		Charset charset = Encoding.getCharset();
-		Path path = Paths.get(filePath);
-		reader = Files.newBufferedReader(path, charset);
+		this(FileChannel.open(Paths.get(filePath)), DEFAULT_BUFFER_SIZE, true);
+	}
+	
+	public ReliableTxtStreamReader(InputStream inputStream) throws IOException {
+		this(inputStream.getClass() == FileInputStream.class ? ((FileInputStream)inputStream).getChannel()
+				: Channels.newChannel(inputStream), DEFAULT_BUFFER_SIZE, false);
+	}
+	
+	public ReliableTxtStreamReader(ReadableByteChannel channel) throws IOException {
+		this(channel, DEFAULT_BUFFER_SIZE, false);
+	}
+	
+	public ReliableTxtStreamReader(ReadableByteChannel channel, int bufferSize) throws IOException {
+		this(channel, bufferSize, false);
+	}
+	
+	public static ReliableTxtStreamReader openMapped(String filePath) throws IOException {
+		FileChannel channel = FileChannel.open(Paths.get(filePath));
+		ReliableTxtMappedChannel mappedChannel;
+		try {
+			mappedChannel = new ReliableTxtMappedChannel(channel);
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+		return new ReliableTxtStreamReader(mappedChannel, DEFAULT_BUFFER_SIZE, true);
+	}
+	
+	private ReliableTxtStreamReader(ReadableByteChannel channel, int bufferSize, boolean closeOnFailure) throws IOException {
+		Objects.requireNonNull(channel);
+		if (bufferSize < 4) { throw new IllegalArgumentException("Buffer size must be at least 4"); }
+		this.channel = channel;
+		byteBuffer = ByteBuffer.allocate(bufferSize);
+		charBuffer = CharBuffer.allocate(bufferSize);
+		charBuffer.flip();
+		if (channel instanceof ReliableTxtMappedChannel) {
+			seekableChannel = ((ReliableTxtMappedChannel)channel).getFileChannel();
+		} else if (channel instanceof SeekableByteChannel) {
+			seekableChannel = (SeekableByteChannel)channel;
+		} else {
+			seekableChannel = null;
+		}
 		
-		if (Encoding != ReliableTxtEncoding.UTF_32) {
-			int preamble = reader.read();
+		ReliableTxtEncoding encoding;
+		try {
+			long startPosition = channel instanceof ReliableTxtMappedChannel ? ((ReliableTxtMappedChannel)channel).position() :
+					seekableChannel != null ? seekableChannel.position() : -1;
+			encoding = readPreamble();
+			if (startPosition >= 0) {
+				contentStart = startPosition + encoding.getPreambleLength();
+			}
+		} catch (IOException | RuntimeException e) {
+			if (closeOnFailure) {
+				channel.close();
+			}
+			throw e;
+		}
+		Encoding = encoding;
+		decoder = encoding.getCharset().newDecoder();
+		decoder.onMalformedInput(CodingErrorAction.REPORT);
+		decoder.onUnmappableCharacter(CodingErrorAction.REPORT);
+	}
+	
+	// A seekable channel lets callers inspect the end of the content up front,
+	// as long as they restore the position before reading on.
+	SeekableByteChannel getSeekableChannel() {
+		return contentStart >= 0 ? seekableChannel : null;
+	}
+	
+	long getContentStart() {
+		return contentStart;
+	}
+	
+	private ReliableTxtEncoding readPreamble() throws IOException {
+		while (byteBuffer.position() < 4) {
+			if (channel.read(byteBuffer) < 0) {
+				endOfInput = true;
+				break;
+			}
+		}
+		byteBuffer.flip();
+		byte[] preambleBytes = new byte[Math.min(4, byteBuffer.remaining())];
+		byteBuffer.get(preambleBytes);
+		ReliableTxtEncoding encoding = ReliableTxtDecoder.getEncoding(preambleBytes);
+		byteBuffer.position(encoding.getPreambleLength());
+		byteBuffer.compact();
+		return encoding;
+	}
+	
+	private boolean fillCharBuffer() throws IOException {
+		charBuffer.clear();
+		while (!decoderFlushed) {
+			if (!endOfInput && channel.read(byteBuffer) < 0) {
+				endOfInput = true;
+			}
+			byteBuffer.flip();
+			CoderResult result = decoder.decode(byteBuffer, charBuffer, endOfInput);
+			byteBuffer.compact();
+			if (result.isError()) {
+				throw new ReliableTxtException("The "+Encoding.name()+" encoded text contains invalid data.");
+			}
+			if (endOfInput && result.isUnderflow()) {
+				if (decoder.flush(charBuffer).isOverflow()) {
+					break;
+				}
+				decoderFlushed = true;
+			} else if (charBuffer.position() > 0) {
+				break;
+			}
 		}
-		sb = new StringBuilder();
+		charBuffer.flip();
+		return charBuffer.hasRemaining();
 	}
 	
 	public String readLine() throws IOException {
 		if (endReached) {
 			return null;
 		}
-		int c;
 		sb.setLength(0);
 		while (true) {
-			c = reader.read();
-			if (c == '\n') {
-				break;
-			} else if(c < 0) {
+			char[] chars = charBuffer.array();
+			int startIndex = charBuffer.position();
+			int endIndex = charBuffer.limit();
+			for (int i=startIndex; i<endIndex; i++) {
+				if (chars[i] == '\n') {
+					charBuffer.position(i+1);
+					if (sb.length() == 0) {
+						return new String(chars, startIndex, i-startIndex);
+					}
+					sb.append(chars, startIndex, i-startIndex);
+					return sb.toString();
+				}
+			}
+			sb.append(chars, startIndex, endIndex-startIndex);
+			charBuffer.position(endIndex);
+			if (!fillCharBuffer()) {
 				endReached = true;
-				break;
+				return sb.toString();
 			}
-			sb.append((char)c);
 		}
-		return sb.toString();
+	}
+
+	// Decodes the rest of the input without building lines. A full load
+	// reports invalid encoded data before any parser error, and this lets
+	// line-wise loaders do the same.
+	void skipRemaining() throws IOException {
+		charBuffer.position(charBuffer.limit());
+		while (fillCharBuffer()) {
+			charBuffer.position(charBuffer.limit());
+		}
+		endReached = true;
 	}
 
 	@Override
-	public void close() throws Exception {
-		reader.close();
+	public void close() throws IOException {
+		channel.close();
+	}
+}
+
+// Serves the bytes of a file from read-only mappings of at most 1 GiB,
+// so a stream reader decodes straight out of the page cache.
+class ReliableTxtMappedChannel implements ReadableByteChannel {
+	private final FileChannel channel;
+	private final long size;
+	private long regionStart;
+	private MappedByteBuffer region;
+	
+	ReliableTxtMappedChannel(FileChannel channel) throws IOException {
+		Objects.requireNonNull(channel);
+		this.channel = channel;
+		size = channel.size();
+		region = ReliableTxtDecoder.mapRegion(channel, 0, size);
+	}
+	
+	FileChannel getFileChannel() {
+		return channel;
+	}
+	
+	long position() {
+		return regionStart + region.position();
+	}
+	
+	@Override
+	public int read(ByteBuffer destination) throws IOException {
+		if (!channel.isOpen()) {
+			throw new ClosedChannelException();
+		}
+		if (!region.hasRemaining()) {
+			long nextRegionStart = regionStart + region.limit();
+			if (nextRegionStart >= size) {
+				return -1;
+			}
+			region = ReliableTxtDecoder.mapRegion(channel, nextRegionStart, size - nextRegionStart);
+			regionStart = nextRegionStart;
+		}
+		int count = Math.min(destination.remaining(), region.remaining());
+		ByteBuffer source = region.duplicate();
+		source.limit(source.position() + count);
+		destination.put(source);
+		region.position(region.position() + count);
+		return count;
+	}
+	
+	@Override
+	public boolean isOpen() {
+		return channel.isOpen();
+	}
+	
+	@Override
+	public void close() throws IOException {
+		channel.close();
 	}
 }
 
@@ -2,17 +2,28 @@ package com.stenway.loextensions.formats;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Base64;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
-import java.util.Optional;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
 
 abstract class SmlNode {
 	String[] whitespaces;
@@ -65,17 +76,41 @@ class SmlEmptyNode extends SmlNode {
 }
 
 abstract class SmlNamedNode extends SmlNode {
+	static final AtomicInteger SharedNameVersion = new AtomicInteger();
+	private static final Object SHARED = new Object();
+	
 	private String name;
+	private Object owner;
 	
 	public SmlNamedNode(String name) {
-		setName(name);
+		this.name = validateName(name);
 	}
 	
-	public void setName(String name) {
+	private static String validateName(String name) {
 		if (name == null) {
 			throw new IllegalArgumentException("Name cannot be null");
 		}
-		this.name = name;
+		return name;
+	}
+	
+	public void setName(String name) {
+		this.name = validateName(name);
+		if (owner == SHARED) {
+			SharedNameVersion.incrementAndGet();
+		} else if (owner != null) {
+			((SmlNodeList)owner).nameChanged();
+		}
+	}
+	
+	// A rename only has to invalidate the name index of the list the node
+	// was added to. Nodes that were added to more than one list bump a
+	// version that every index checks.
+	void addOwner(SmlNodeList list) {
+		if (owner == null) {
+			owner = list;
+		} else if (owner != list) {
+			owner = SHARED;
+		}
 	}
 	
 	public String getName() {
@@ -324,8 +359,344 @@ class SmlAttribute extends SmlNamedNode {
 	}
 }
 
+class SmlNodeList extends ArrayList<SmlNode> {
+	private static final long serialVersionUID = 1L;
+	
+	private int structureVersion;
+	private int appendModCount;
+	private int nameVersion;
+	
+	// Counts every change except appending with add(node), so that an
+	// index over the list only has to be rebuilt when earlier positions
+	// could have moved.
+	int getStructureVersion() {
+		if (modCount != appendModCount) {
+			structureVersion++;
+			appendModCount = modCount;
+		}
+		return structureVersion;
+	}
+	
+	int getNameVersion() {
+		return nameVersion;
+	}
+	
+	void nameChanged() {
+		nameVersion++;
+	}
+	
+	private void addOwner(SmlNode node) {
+		if (node instanceof SmlNamedNode) {
+			((SmlNamedNode)node).addOwner(this);
+		}
+	}
+	
+	@Override
+	public boolean add(SmlNode node) {
+		addOwner(node);
+		getStructureVersion();
+		super.add(node);
+		appendModCount = modCount;
+		return true;
+	}
+	
+	@Override
+	public void add(int index, SmlNode node) {
+		addOwner(node);
+		super.add(index, node);
+		structureVersion++;
+	}
+	
+	@Override
+	public boolean addAll(Collection<? extends SmlNode> nodes) {
+		nodes.forEach(this::addOwner);
+		return super.addAll(nodes);
+	}
+	
+	@Override
+	public boolean addAll(int index, Collection<? extends SmlNode> nodes) {
+		nodes.forEach(this::addOwner);
+		return super.addAll(index, nodes);
+	}
+	
+	@Override
+	public SmlNode set(int index, SmlNode node) {
+		addOwner(node);
+		structureVersion++;
+		return super.set(index, node);
+	}
+	
+	@Override
+	public void replaceAll(UnaryOperator<SmlNode> operator) {
+		super.replaceAll(operator);
+		forEach(this::addOwner);
+	}
+	
+	@Override
+	public List<SmlNode> subList(int fromIndex, int toIndex) {
+		return new SubList(super.subList(fromIndex, toIndex));
+	}
+	
+	// ArrayList's sublist writes set() straight into the backing array and
+	// bypasses the overrides above.
+	private class SubList extends AbstractList<SmlNode> implements RandomAccess {
+		private final List<SmlNode> nodes;
+		
+		SubList(List<SmlNode> nodes) {
+			this.nodes = nodes;
+		}
+		
+		@Override
+		public SmlNode get(int index) {
+			return nodes.get(index);
+		}
+		
+		@Override
+		public int size() {
+			return nodes.size();
+		}
+		
+		@Override
+		public SmlNode set(int index, SmlNode node) {
+			addOwner(node);
+			structureVersion++;
+			return nodes.set(index, node);
+		}
+		
+		@Override
+		public void add(int index, SmlNode node) {
+			nodes.add(index, node);
+			modCount++;
+		}
+		
+		@Override
+		public SmlNode remove(int index) {
+			SmlNode node = nodes.remove(index);
+			modCount++;
+			return node;
+		}
+		
+		@Override
+		protected void removeRange(int fromIndex, int toIndex) {
+			nodes.subList(fromIndex, toIndex).clear();
+			modCount++;
+		}
+	}
+}
+
+class SmlNodeView<T extends SmlNode> extends AbstractList<T> implements RandomAccess {
+	private final SmlNodeList nodes;
+	private final Class<T> nodeClass;
+	private int structureVersion = -1;
+	private int scannedCount;
+	private int size;
+	private int[] positions = new int[0];
+	
+	SmlNodeView(SmlNodeList nodes, Class<T> nodeClass) {
+		this.nodes = nodes;
+		this.nodeClass = nodeClass;
+	}
+	
+	private void update() {
+		int currentStructureVersion = nodes.getStructureVersion();
+		if (currentStructureVersion != structureVersion) {
+			structureVersion = currentStructureVersion;
+			scannedCount = 0;
+			size = 0;
+		}
+		int nodeCount = nodes.size();
+		for (; scannedCount < nodeCount; scannedCount++) {
+			if (nodeClass.isInstance(nodes.get(scannedCount))) {
+				if (size == positions.length) {
+					positions = Arrays.copyOf(positions, Math.max(8, size * 2));
+				}
+				positions[size++] = scannedCount;
+			}
+		}
+	}
+	
+	@Override
+	public T get(int index) {
+		update();
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: "+index+", Size: "+size);
+		}
+		return nodeClass.cast(nodes.get(positions[index]));
+	}
+	
+	@Override
+	public int size() {
+		update();
+		return size;
+	}
+}
+
+// Like the node list it indexes, this is not safe for concurrent use.
+class SmlNodeIndex {
+	static final int MIN_NODE_COUNT = 16;
+	
+	private final SmlNodeList nodes;
+	private int structureVersion = -1;
+	private int nameVersion;
+	private int sharedNameVersion;
+	private int nodeCount;
+	
+	private int slotCount;
+	private int[] names;
+	private int[] firstAttributes;
+	private int[] lastAttributes;
+	private int[] firstElements;
+	private int[] lastElements;
+	private int[] next = new int[0];
+	
+	SmlNodeIndex(SmlNodeList nodes) {
+		this.nodes = nodes;
+	}
+	
+	void update() {
+		int currentStructureVersion = nodes.getStructureVersion();
+		int currentNameVersion = nodes.getNameVersion();
+		int currentSharedNameVersion = SmlNamedNode.SharedNameVersion.get();
+		if (currentStructureVersion != structureVersion || currentNameVersion != nameVersion
+				|| currentSharedNameVersion != sharedNameVersion) {
+			structureVersion = currentStructureVersion;
+			nameVersion = currentNameVersion;
+			sharedNameVersion = currentSharedNameVersion;
+			nodeCount = 0;
+			slotCount = 0;
+			allocateSlots(Integer.highestOneBit(Math.max(nodes.size(), 8)) * 4);
+		}
+		int size = nodes.size();
+		if (nodeCount == size) {
+			return;
+		}
+		if (next.length < size) {
+			next = Arrays.copyOf(next, Math.max(size, next.length * 2));
+		}
+		for (int position=nodeCount; position<size; position++) {
+			add(position);
+		}
+		nodeCount = size;
+	}
+	
+	private void allocateSlots(int capacity) {
+		names = new int[capacity];
+		Arrays.fill(names, -1);
+		firstAttributes = new int[capacity];
+		lastAttributes = new int[capacity];
+		firstElements = new int[capacity];
+		lastElements = new int[capacity];
+	}
+	
+	private void add(int position) {
+		next[position] = -1;
+		SmlNode node = nodes.get(position);
+		if (!(node instanceof SmlNamedNode)) {
+			return;
+		}
+		String name = ((SmlNamedNode)node).getName();
+		int slot = findSlot(name);
+		if (names[slot] < 0) {
+			if ((slotCount + 1) * 2 > names.length) {
+				growSlots();
+				slot = findSlot(name);
+			}
+			names[slot] = position;
+			firstAttributes[slot] = -1;
+			lastAttributes[slot] = -1;
+			firstElements[slot] = -1;
+			lastElements[slot] = -1;
+			slotCount++;
+		}
+		if (node instanceof SmlAttribute) {
+			if (firstAttributes[slot] < 0) {
+				firstAttributes[slot] = position;
+			} else {
+				next[lastAttributes[slot]] = position;
+			}
+			lastAttributes[slot] = position;
+		} else if (node instanceof SmlElement) {
+			if (firstElements[slot] < 0) {
+				firstElements[slot] = position;
+			} else {
+				next[lastElements[slot]] = position;
+			}
+			lastElements[slot] = position;
+		}
+	}
+	
+	private void growSlots() {
+		int[] oldNames = names;
+		int[] oldFirstAttributes = firstAttributes;
+		int[] oldLastAttributes = lastAttributes;
+		int[] oldFirstElements = firstElements;
+		int[] oldLastElements = lastElements;
+		allocateSlots(oldNames.length * 2);
+		for (int oldSlot=0; oldSlot<oldNames.length; oldSlot++) {
+			int position = oldNames[oldSlot];
+			if (position < 0) {
+				continue;
+			}
+			int slot = findSlot(((SmlNamedNode)nodes.get(position)).getName());
+			names[slot] = position;
+			firstAttributes[slot] = oldFirstAttributes[oldSlot];
+			lastAttributes[slot] = oldLastAttributes[oldSlot];
+			firstElements[slot] = oldFirstElements[oldSlot];
+			lastElements[slot] = oldLastElements[oldSlot];
+		}
+	}
+	
+	private int findSlot(String name) {
+		int mask = names.length - 1;
+		int slot = hashIgnoreCase(name) & mask;
+		while (true) {
+			int position = names[slot];
+			if (position < 0 || ((SmlNamedNode)nodes.get(position)).hasName(name)) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+	}
+	
+	// Folding every code point through upper and then lower case gives
+	// equal hashes for all names that String.equalsIgnoreCase accepts.
+	private static int hashIgnoreCase(String name) {
+		int hash = 0;
+		for (int i=0; i<name.length(); ) {
+			int codePoint = name.codePointAt(i);
+			hash = 31 * hash + Character.toLowerCase(Character.toUpperCase(codePoint));
+			i += Character.charCount(codePoint);
+		}
+		return hash ^ (hash >>> 16);
+	}
+	
+	int firstAttribute(String name) {
+		if (name == null) {
+			return -1;
+		}
+		int slot = findSlot(name);
+		return names[slot] < 0 ? -1 : firstAttributes[slot];
+	}
+	
+	int firstElement(String name) {
+		if (name == null) {
+			return -1;
+		}
+		int slot = findSlot(name);
+		return names[slot] < 0 ? -1 : firstElements[slot];
+	}
+	
+	int next(int position) {
+		return next[position];
+	}
+}
+
 class SmlElement extends SmlNamedNode {
-	public final ArrayList<SmlNode> Nodes = new ArrayList<SmlNode>();
+	public final ArrayList<SmlNode> Nodes = new SmlNodeList();
+	
+	private SmlNodeIndex index;
+	private SmlNodeView<SmlAttribute> attributesView;
+	private SmlNodeView<SmlElement> elementsView;
 	
 	String[] endWhitespaces;
 	String endComment;
@@ -414,85 +785,247 @@ class SmlElement extends SmlNamedNode {
 	}
 	
 	public SmlAttribute[] attributes() {
-		return Nodes.stream()
-				.filter(node -> node instanceof SmlAttribute)
-				.map(node -> (SmlAttribute)node)
-				.toArray(SmlAttribute[]::new);
+		int count = 0;
+		for (int i=0; i<Nodes.size(); i++) {
+			if (Nodes.get(i) instanceof SmlAttribute) {
+				count++;
+			}
+		}
+		SmlAttribute[] result = new SmlAttribute[count];
+		count = 0;
+		for (int i=0; i<Nodes.size(); i++) {
+			SmlNode node = Nodes.get(i);
+			if (node instanceof SmlAttribute) {
+				result[count++] = (SmlAttribute)node;
+			}
+		}
+		return result;
 	}
 	
 	public SmlAttribute[] attributes(String name) {
-		return Nodes.stream()
-				.filter(node -> node instanceof SmlAttribute)
-				.map(node -> (SmlAttribute)node)
-				.filter(attribute -> attribute.hasName(name))
-				.toArray(SmlAttribute[]::new);
+		SmlNodeIndex index = getIndex();
+		if (index == null) {
+			return Nodes.stream()
+					.filter(node -> node instanceof SmlAttribute)
+					.map(node -> (SmlAttribute)node)
+					.filter(attribute -> attribute.hasName(name))
+					.toArray(SmlAttribute[]::new);
+		}
+		int first = index.firstAttribute(name);
+		int count = 0;
+		for (int position=first; position>=0; position=index.next(position)) {
+			count++;
+		}
+		SmlAttribute[] result = new SmlAttribute[count];
+		count = 0;
+		for (int position=first; position>=0; position=index.next(position)) {
+			result[count++] = (SmlAttribute)Nodes.get(position);
+		}
+		return result;
 	}
 	
 	public SmlAttribute attribute(String name) {
-		Optional<SmlAttribute> result = Nodes.stream()
-				.filter(node -> node instanceof SmlAttribute)
-				.map(node -> (SmlAttribute)node)
-				.filter(attribute -> attribute.hasName(name))
-				.findFirst();
-		if (result.isPresent()) {
-			return result.get();
+		SmlAttribute result = findAttribute(name);
+		if (result != null) {
+			return result;
 		} else {
 			throw new IllegalArgumentException("Element \""+getName()+"\" does not contain a \""+name+"\" attribute");
 		}
 	}
 	
 	public boolean hasAttribute(String name) {
-		return Nodes.stream()
-				.filter(node -> node instanceof SmlAttribute)
-				.map(node -> (SmlAttribute)node)
-				.filter(attribute -> attribute.hasName(name))
-				.findFirst()
-				.isPresent();
+		return findAttribute(name) != null;
+	}
+	
+	private SmlAttribute findAttribute(String name) {
+		SmlNodeIndex index = getIndex();
+		if (index != null) {
+			int position = index.firstAttribute(name);
+			return position < 0 ? null : (SmlAttribute)Nodes.get(position);
+		}
+		for (int i=0; i<Nodes.size(); i++) {
+			SmlNode node = Nodes.get(i);
+			if (node instanceof SmlAttribute && ((SmlAttribute)node).hasName(name)) {
+				return (SmlAttribute)node;
+			}
+		}
+		return null;
 	}
 	
 	public SmlElement[] elements() {
-		return Nodes.stream()
-				.filter(node -> node instanceof SmlElement)
-				.map(node -> (SmlElement)node)
-				.toArray(SmlElement[]::new);
+		int count = 0;
+		for (int i=0; i<Nodes.size(); i++) {
+			if (Nodes.get(i) instanceof SmlElement) {
+				count++;
+			}
+		}
+		SmlElement[] result = new SmlElement[count];
+		count = 0;
+		for (int i=0; i<Nodes.size(); i++) {
+			SmlNode node = Nodes.get(i);
+			if (node instanceof SmlElement) {
+				result[count++] = (SmlElement)node;
+			}
+		}
+		return result;
 	}
 	
 	public SmlElement[] elements(String name) {
-		return Nodes.stream()
-				.filter(node -> node instanceof SmlElement)
-				.map(node -> (SmlElement)node)
-				.filter(element -> element.hasName(name))
-				.toArray(SmlElement[]::new);
+		SmlNodeIndex index = getIndex();
+		if (index == null) {
+			return Nodes.stream()
+					.filter(node -> node instanceof SmlElement)
+					.map(node -> (SmlElement)node)
+					.filter(element -> element.hasName(name))
+					.toArray(SmlElement[]::new);
+		}
+		int first = index.firstElement(name);
+		int count = 0;
+		for (int position=first; position>=0; position=index.next(position)) {
+			count++;
+		}
+		SmlElement[] result = new SmlElement[count];
+		count = 0;
+		for (int position=first; position>=0; position=index.next(position)) {
+			result[count++] = (SmlElement)Nodes.get(position);
+		}
+		return result;
 	}
 	
 	public SmlElement element(String name) {
-		Optional<SmlElement> result = Nodes.stream()
-				.filter(node -> node instanceof SmlElement)
-				.map(node -> (SmlElement)node)
-				.filter(element -> element.hasName(name))
-				.findFirst();
-		if (result.isPresent()) {
-			return result.get();
+		SmlElement result = findElement(name);
+		if (result != null) {
+			return result;
 		} else {
 			throw new IllegalArgumentException("Element \""+getName()+"\" does not contain a \""+name+"\" element");
 		}
 	}
 	
 	public boolean hasElement(String name) {
-		return Nodes.stream()
-				.filter(node -> node instanceof SmlElement)
-				.map(node -> (SmlElement)node)
-				.filter(element -> element.hasName(name))
-				.findFirst()
-				.isPresent();
+		return findElement(name) != null;
+	}
+	
+	private SmlElement findElement(String name) {
+		SmlNodeIndex index = getIndex();
+		if (index != null) {
+			int position = index.firstElement(name);
+			return position < 0 ? null : (SmlElement)Nodes.get(position);
+		}
+		for (int i=0; i<Nodes.size(); i++) {
+			SmlNode node = Nodes.get(i);
+			if (node instanceof SmlElement && ((SmlElement)node).hasName(name)) {
+				return (SmlElement)node;
+			}
+		}
+		return null;
 	}
 	
 	public SmlNamedNode[] nodes(String name) {
-		return Nodes.stream()
-				.filter(node -> node instanceof SmlNamedNode)
-				.map(node -> (SmlNamedNode)node)
-				.filter(attribute -> attribute.hasName(name))
-				.toArray(SmlNamedNode[]::new);
+		SmlNodeIndex index = getIndex();
+		if (index == null) {
+			return Nodes.stream()
+					.filter(node -> node instanceof SmlNamedNode)
+					.map(node -> (SmlNamedNode)node)
+					.filter(node -> node.hasName(name))
+					.toArray(SmlNamedNode[]::new);
+		}
+		int attributePosition = index.firstAttribute(name);
+		int elementPosition = index.firstElement(name);
+		int count = 0;
+		for (int position=attributePosition; position>=0; position=index.next(position)) {
+			count++;
+		}
+		for (int position=elementPosition; position>=0; position=index.next(position)) {
+			count++;
+		}
+		SmlNamedNode[] result = new SmlNamedNode[count];
+		for (int i=0; i<count; i++) {
+			int position;
+			if (elementPosition < 0 || (attributePosition >= 0 && attributePosition < elementPosition)) {
+				position = attributePosition;
+				attributePosition = index.next(position);
+			} else {
+				position = elementPosition;
+				elementPosition = index.next(position);
+			}
+			result[i] = (SmlNamedNode)Nodes.get(position);
+		}
+		return result;
+	}
+	
+	public List<SmlAttribute> attributesView() {
+		if (attributesView == null) {
+			attributesView = new SmlNodeView<>((SmlNodeList)Nodes, SmlAttribute.class);
+		}
+		return attributesView;
+	}
+	
+	public List<SmlElement> elementsView() {
+		if (elementsView == null) {
+			elementsView = new SmlNodeView<>((SmlNodeList)Nodes, SmlElement.class);
+		}
+		return elementsView;
+	}
+	
+	public void forEachAttribute(Consumer<? super SmlAttribute> action) {
+		for (int i=0; i<Nodes.size(); i++) {
+			SmlNode node = Nodes.get(i);
+			if (node instanceof SmlAttribute) {
+				action.accept((SmlAttribute)node);
+			}
+		}
+	}
+	
+	public void forEachAttribute(String name, Consumer<? super SmlAttribute> action) {
+		SmlNodeIndex index = getIndex();
+		if (index != null) {
+			for (int position=index.firstAttribute(name); position>=0; position=index.next(position)) {
+				action.accept((SmlAttribute)Nodes.get(position));
+			}
+			return;
+		}
+		for (int i=0; i<Nodes.size(); i++) {
+			SmlNode node = Nodes.get(i);
+			if (node instanceof SmlAttribute && ((SmlAttribute)node).hasName(name)) {
+				action.accept((SmlAttribute)node);
+			}
+		}
+	}
+	
+	public void forEachElement(Consumer<? super SmlElement> action) {
+		for (int i=0; i<Nodes.size(); i++) {
+			SmlNode node = Nodes.get(i);
+			if (node instanceof SmlElement) {
+				action.accept((SmlElement)node);
+			}
+		}
+	}
+	
+	public void forEachElement(String name, Consumer<? super SmlElement> action) {
+		SmlNodeIndex index = getIndex();
+		if (index != null) {
+			for (int position=index.firstElement(name); position>=0; position=index.next(position)) {
+				action.accept((SmlElement)Nodes.get(position));
+			}
+			return;
+		}
+		for (int i=0; i<Nodes.size(); i++) {
+			SmlNode node = Nodes.get(i);
+			if (node instanceof SmlElement && ((SmlElement)node).hasName(name)) {
+				action.accept((SmlElement)node);
+			}
+		}
+	}
+	
+	private SmlNodeIndex getIndex() {
+		if (Nodes.size() < SmlNodeIndex.MIN_NODE_COUNT) {
+			return null;
+		}
+		if (index == null) {
+			index = new SmlNodeIndex((SmlNodeList)Nodes);
+		}
+		index.update();
+		return index;
 	}
 	
 	public String getString(String attributeName) {
@@ -520,96 +1053,108 @@ class SmlElement extends SmlNamedNode {
 	}
 	
 	public String getString(String attributeName, String defaultValue) {
-		if (hasAttribute(attributeName)) {
-			return attribute(attributeName).getString();
+		SmlAttribute attribute = findAttribute(attributeName);
+		if (attribute != null) {
+			return attribute.getString();
 		} else {
 			return defaultValue;
 		}
 	}
 	
 	public int getInt(String attributeName, int defaultValue) {
-		if (hasAttribute(attributeName)) {
-			return attribute(attributeName).getInt();
+		SmlAttribute attribute = findAttribute(attributeName);
+		if (attribute != null) {
+			return attribute.getInt();
 		} else {
 			return defaultValue;
 		}
 	}
 	
 	public float getFloat(String attributeName, float defaultValue) {
-		if (hasAttribute(attributeName)) {
-			return attribute(attributeName).getFloat();
+		SmlAttribute attribute = findAttribute(attributeName);
+		if (attribute != null) {
+			return attribute.getFloat();
 		} else {
 			return defaultValue;
 		}
 	}
 	
 	public double getDouble(String attributeName, double defaultValue) {
-		if (hasAttribute(attributeName)) {
-			return attribute(attributeName).getDouble();
+		SmlAttribute attribute = findAttribute(attributeName);
+		if (attribute != null) {
+			return attribute.getDouble();
 		} else {
 			return defaultValue;
 		}
 	}
 	
 	public boolean getBoolean(String attributeName, boolean defaultValue) {
-		if (hasAttribute(attributeName)) {
-			return attribute(attributeName).getBoolean();
+		SmlAttribute attribute = findAttribute(attributeName);
+		if (attribute != null) {
+			return attribute.getBoolean();
 		} else {
 			return defaultValue;
 		}
 	}
 	
 	public byte[] getBytes(String attributeName, byte[] defaultValues) {
-		if (hasAttribute(attributeName)) {
-			return attribute(attributeName).getBytes();
+		SmlAttribute attribute = findAttribute(attributeName);
+		if (attribute != null) {
+			return attribute.getBytes();
 		} else {
 			return defaultValues;
 		}
 	}
 	
 	public String getStringOrNull(String attributeName) {
-		if (hasAttribute(attributeName)) {
-			return attribute(attributeName).getString();
+		SmlAttribute attribute = findAttribute(attributeName);
+		if (attribute != null) {
+			return attribute.getString();
 		} else {
 			return null;
 		}
 	}
 	
 	public Integer getIntOrNull(String attributeName) {
-		if (hasAttribute(attributeName)) {
-			return attribute(attributeName).getInt();
+		SmlAttribute attribute = findAttribute(attributeName);
+		if (attribute != null) {
+			return attribute.getInt();
 		} else {
 			return null;
 		}
 	}
 	
 	public Float getFloatOrNull(String attributeName) {
-		if (hasAttribute(attributeName)) {
-			return attribute(attributeName).getFloat();
+		SmlAttribute attribute = findAttribute(attributeName);
+		if (attribute != null) {
+			return attribute.getFloat();
 		} else {
 			return null;
 		}
 	}
 	
 	public Double getDoubleOrNull(String attributeName) {
-		if (hasAttribute(attributeName)) {
-			return attribute(attributeName).getDouble();
+		SmlAttribute attribute = findAttribute(attributeName);
+		if (attribute != null) {
+			return attribute.getDouble();
 		} else {
 			return null;
 		}
 	}
 	
 	public Boolean getBooleanOrNull(String attributeName) {
-		if (hasAttribute(attributeName)) {
-			return attribute(attributeName).getBoolean();
+		SmlAttribute attribute = findAttribute(attributeName);
+		if (attribute != null) {
+			return attribute.getBoolean();
 		} else {
 			return null;
 		}
 	}
 	
 	public byte[] getBytesOrNull(String attributeName) {
-		if (hasAttribute(attributeName)) {
-			return attribute(attributeName).getBytes();
+		SmlAttribute attribute = findAttribute(attributeName);
+		if (attribute != null) {
+			return attribute.getBytes();
 		} else {
 			return null;
 		}
@@ -640,48 +1185,54 @@ class SmlElement extends SmlNamedNode {
 	}
 		
 	public String[] getValues(String attributeName, String[] defaultValues) {
-		if (hasAttribute(attributeName)) {
-			return attribute(attributeName).getValues();
+		SmlAttribute attribute = findAttribute(attributeName);
+		if (attribute != null) {
+			return attribute.getValues();
 		} else {
 			return defaultValues;
 		}
 	}
 	
 	public int[] getIntValues(String attributeName, int[] defaultValues) {
-		if (hasAttribute(attributeName)) {
-			return attribute(attributeName).getIntValues();
+		SmlAttribute attribute = findAttribute(attributeName);
+		if (attribute != null) {
+			return attribute.getIntValues();
 		} else {
 			return defaultValues;
 		}
 	}
 	
 	public float[] getFloatValues(String attributeName, float[] defaultValues) {
-		if (hasAttribute(attributeName)) {
-			return attribute(attributeName).getFloatValues();
+		SmlAttribute attribute = findAttribute(attributeName);
+		if (attribute != null) {
+			return attribute.getFloatValues();
 		} else {
 			return defaultValues;
 		}
 	}
 	
 	public double[] getDoubleValues(String attributeName, double[] defaultValues) {
-		if (hasAttribute(attributeName)) {
-			return attribute(attributeName).getDoubleValues();
+		SmlAttribute attribute = findAttribute(attributeName);
+		if (attribute != null) {
+			return attribute.getDoubleValues();
 		} else {
 			return defaultValues;
 		}
 	}
 	
 	public boolean[] getBooleanValues(String attributeName, boolean[] defaultValues) {
-		if (hasAttribute(attributeName)) {
-			return attribute(attributeName).getBooleanValues();
+		SmlAttribute attribute = findAttribute(attributeName);
+		if (attribute != null) {
+			return attribute.getBooleanValues();
 		} else {
 			return defaultValues;
 		}
 	}
 	
 	public byte[][] getBytesValues(String attributeName, byte[][] defaultValues) {
-		if (hasAttribute(attributeName)) {
-			return attribute(attributeName).getBytesValues();
+		SmlAttribute attribute = findAttribute(attributeName);
+		if (attribute != null) {
+			return attribute.getBytesValues();
 		} else {
 			return defaultValues;
 		}
@@ -818,8 +1369,9 @@ class SmlDocument {
 	}
 	
 	public void save(String filePath) throws IOException {
-		String content = toString();
-		ReliableTxtDocument.save(content, encoding, filePath);
+		Objects.requireNonNull(filePath);
+		
+		ReliableTxtEncodingWriter.writeFile(filePath, encoding, writer -> SmlSerializer.serializeDocument(this, writer));
 	}
 	
 	public static SmlDocument load(String filePath) throws IOException {
@@ -828,6 +1380,19 @@ class SmlDocument {
 		document.encoding = txt.getEncoding();
 		return document;
 	}
+	
+	public static SmlDocument loadMapped(String filePath) throws IOException {
+		try (ReliableTxtStreamReader txtReader = ReliableTxtStreamReader.openMapped(filePath)) {
+			try {
+				SmlDocument document = SmlParser.parseDocument(new WsvStreamReader(txtReader));
+				document.encoding = txtReader.Encoding;
+				return document;
+			} catch (WsvParserException | SmlParserException exception) {
+				txtReader.skipRemaining();
+				throw exception;
+			}
+		}
+	}
 
 	public static SmlDocument parse(String content) {
 		return parse(content, true);
@@ -857,6 +1422,43 @@ class SmlSerializer {
 		return wsvDocument.toString();
 	}
 	
+	public static void serializeDocument(SmlDocument document, Appendable out) throws IOException {
+		StreamingWsvDocument wsvDocument = new StreamingWsvDocument(out);
+		try {
+			serialzeEmptyNodes(document.EmptyNodesBefore, wsvDocument);
+			document.getRoot().toWsvLines(wsvDocument, 0, document.defaultIndentation, document.endKeyword);
+			serialzeEmptyNodes(document.EmptyNodesAfter, wsvDocument);
+		} catch (UncheckedIOException exception) {
+			throw exception.getCause();
+		}
+		WsvSerializer.flush(wsvDocument.sb, out, true);
+	}
+	
+	private static final class StreamingWsvDocument extends WsvDocument {
+		final StringBuilder sb = new StringBuilder(WsvSerializer.FLUSH_THRESHOLD + 256);
+		final Appendable out;
+		boolean isFirstLine = true;
+		
+		StreamingWsvDocument(Appendable out) {
+			this.out = out;
+		}
+		
+		@Override
+		public void addLine(WsvLine line) {
+			if (!isFirstLine) {
+				sb.append('\n');
+			} else {
+				isFirstLine = false;
+			}
+			WsvSerializer.serializeLine(sb, line);
+			try {
+				WsvSerializer.flush(sb, out, false);
+			} catch (IOException exception) {
+				throw new UncheckedIOException(exception);
+			}
+		}
+	}
+	
 	public static String serializeElement(SmlElement element) {
 		WsvDocument wsvDocument = new WsvDocument();
 		element.toWsvLines(wsvDocument, 0, null, "End");
@@ -891,8 +1493,8 @@ class SmlSerializer {
 		String[] whitespaces = getWhitespaces(element.whitespaces, level, defaultIndentation);
 		wsvDocument.addLine(new String[]{element.getName()}, whitespaces, element.comment);
 		
-		for (SmlNode child : element.Nodes) {
-			child.toWsvLines(wsvDocument, childLevel, defaultIndentation, endKeyword);
+		for (int i=0; i<element.Nodes.size(); i++) {
+			element.Nodes.get(i).toWsvLines(wsvDocument, childLevel, defaultIndentation, endKeyword);
 		}
 		
 		String[] endWhitespaces = getWhitespaces(element.endWhitespaces, level, defaultIndentation);
@@ -945,6 +1547,24 @@ class SmlSerializer {
 	
 	public static String serializeDocumentNonPreserving(SmlDocument document, boolean minified) {
 		StringBuilder sb = new StringBuilder();
+		try {
+			serializeDocumentNonPreserving(sb, null, document, minified);
+		} catch (IOException exception) {
+			throw new UncheckedIOException(exception);
+		}
+		return sb.toString();
+	}
+	
+	public static void serializeDocumentNonPreserving(SmlDocument document, boolean minified,
+			Appendable out) throws IOException {
+		Objects.requireNonNull(out);
+		StringBuilder sb = new StringBuilder(WsvSerializer.FLUSH_THRESHOLD + 256);
+		serializeDocumentNonPreserving(sb, out, document, minified);
+		WsvSerializer.flush(sb, out, true);
+	}
+	
+	private static void serializeDocumentNonPreserving(StringBuilder sb, Appendable out,
+			SmlDocument document, boolean minified) throws IOException {
 		String defaultIndentation = document.getDefaultIndentation();
 		if (defaultIndentation == null) {
 			defaultIndentation = "\t";
@@ -954,43 +1574,50 @@ class SmlSerializer {
 			defaultIndentation = "";
 			endKeyword = null;
 		}
-		serializeElementNonPreserving(sb, document.getRoot(), 0, defaultIndentation, endKeyword);
-		sb.setLength(sb.length()-1);
-		return sb.toString();
+		serializeElementNonPreserving(sb, out, document.getRoot(), 0, defaultIndentation, endKeyword);
 	}
 
-	private static void serializeElementNonPreserving(StringBuilder sb, SmlElement element,
-			int level, String defaultIndentation, String endKeyword) {
+	// Lines are separated by a leading '\n' (except for the root element's
+	// first line), so flushed output never has to be trimmed afterwards.
+	private static void serializeElementNonPreserving(StringBuilder sb, Appendable out, SmlElement element,
+			int level, String defaultIndentation, String endKeyword) throws IOException {
+		if (level > 0) {
+			sb.append('\n');
+		}
 		serializeIndentation(sb, level, defaultIndentation);
 		WsvSerializer.serializeValue(sb, element.getName());
-		sb.append('\n'); 
+		WsvSerializer.flush(sb, out, false);
 
 		int childLevel = level + 1;
-		for (SmlNode child : element.Nodes) {
+		for (int i=0; i<element.Nodes.size(); i++) {
+			SmlNode child = element.Nodes.get(i);
 			if (child instanceof SmlElement) {
-				serializeElementNonPreserving(sb, (SmlElement)child, childLevel, defaultIndentation, endKeyword);
+				serializeElementNonPreserving(sb, out, (SmlElement)child, childLevel, defaultIndentation, endKeyword);
 			} else if (child instanceof SmlAttribute) {
 				serializeAttributeNonPreserving(sb, (SmlAttribute)child, childLevel, defaultIndentation);
+				WsvSerializer.flush(sb, out, false);
 			}
 		}
 		
+		sb.append('\n');
 		serializeIndentation(sb, level, defaultIndentation);
 		WsvSerializer.serializeValue(sb, endKeyword);
-		sb.append('\n'); 
+		WsvSerializer.flush(sb, out, false);
 	}
 	
 	private static void serializeAttributeNonPreserving(StringBuilder sb, SmlAttribute attribute,
 			int level, String defaultIndentation) {
+		sb.append('\n');
 		serializeIndentation(sb, level, defaultIndentation);
 		WsvSerializer.serializeValue(sb, attribute.getName());
 		sb.append(' '); 
 		WsvSerializer.serializeLine(sb, attribute.getValues());
-		sb.append('\n'); 
 	}
 	
 	private static void serializeIndentation(StringBuilder sb, int level, String defaultIndentation) {
-		String indentStr = getIndentationString(defaultIndentation, level);
-		sb.append(indentStr);
+		for (int i=0; i<level; i++) {
+			sb.append(defaultIndentation);
+		}
 	}
 }
 
@@ -1004,20 +1631,42 @@ class SmlParserException extends RuntimeException {
 }
 
 class SmlParser {
-	private static final String ONLY_ONE_ROOT_ELEMENT_ALLOWED				= "Only one root element allowed";
-	private static final String ROOT_ELEMENT_EXPECTED						= "Root element expected";
-	private static final String INVALID_ROOT_ELEMENT_START					= "Invalid root element start";
-	private static final String NULL_VALUE_AS_ELEMENT_NAME_IS_NOT_ALLOWED	= "Null value as element name is not allowed";
-	private static final String NULL_VALUE_AS_ATTRIBUTE_NAME_IS_NOT_ALLOWED	= "Null value as attribute name is not allowed";
+	static final String ONLY_ONE_ROOT_ELEMENT_ALLOWED				= "Only one root element allowed";
+	static final String ROOT_ELEMENT_EXPECTED						= "Root element expected";
+	static final String INVALID_ROOT_ELEMENT_START					= "Invalid root element start";
+	static final String NULL_VALUE_AS_ELEMENT_NAME_IS_NOT_ALLOWED	= "Null value as element name is not allowed";
+	static final String NULL_VALUE_AS_ATTRIBUTE_NAME_IS_NOT_ALLOWED	= "Null value as attribute name is not allowed";
 	private static final String END_KEYWORD_COULD_NOT_BE_DETECTED			= "End keyword could not be detected";
+	private static final int TAIL_CHUNK_SIZE = 4096;
+	private static final int MAX_TAIL_CHUNK_SIZE = Integer.MAX_VALUE - 8;
 	
 	public static SmlDocument parseDocument(String content) throws IOException {
-		WsvDocument wsvDocument = WsvDocument.parse(content);
-		String endKeyword = determineEndKeyword(wsvDocument);
-		WsvLineIterator iterator = new WsvDocumentLineIterator(wsvDocument, endKeyword);
-		
+		String endKeyword = determineEndKeyword(content);
+		WsvTokenReader reader = new WsvTokenReader(content);
+		WsvLineIterator iterator = new WsvTokenLineIterator(reader, endKeyword);
+		try {
+			return parseDocument(iterator);
+		} catch (SmlParserException exception) {
+			throw preferWsvException(reader, exception);
+		}
+	}
+	
+	static SmlDocument parseDocument(WsvStreamReader reader) throws IOException {
+		String endKeyword = determineEndKeyword(reader);
+		WsvLineIterator iterator = new WsvStreamLineIterator(reader, endKeyword);
+		try {
+			return parseDocument(iterator);
+		} catch (SmlParserException exception) {
+			// A WSV error further down wins, as it does for parseDocument(String).
+			while (reader.readLine(false) != null) {
+			}
+			throw exception;
+		}
+	}
+	
+	private static SmlDocument parseDocument(WsvLineIterator iterator) throws IOException {
 		SmlDocument document = new SmlDocument();
-		document.setEndKeyword(endKeyword);
+		document.setEndKeyword(iterator.getEndKeyword());
 		
 		SmlElement rootElement = readRootElement(iterator, document.EmptyNodesBefore);
 		readElementContent(iterator, rootElement);
@@ -1030,7 +1679,18 @@ class SmlParser {
 		return document;
 	}
 	
-	private static boolean equalIgnoreCase(String name1, String name2) {
+	// Lines are tokenized while the tree is built, so an SML error can show up
+	// before a WSV error further down. Like a full WSV parse, report the latter.
+	// Everything up to the failing line is already tokenized, so the pass
+	// just continues to the end.
+	private static SmlParserException preferWsvException(WsvTokenReader reader, SmlParserException exception) {
+		while (reader.getTokenType() != WsvTokenType.EOF) {
+			reader.next();
+		}
+		return exception;
+	}
+	
+	static boolean equalIgnoreCase(String name1, String name2) {
 		if (name1 == null) {
 			return name1 == name2;
 		}
@@ -1123,18 +1783,188 @@ class SmlParser {
 		return emptyNode;
 	}
 	
-	private static String determineEndKeyword(WsvDocument wsvDocument) {
-		for (int i=wsvDocument.Lines.size()-1; i>=0; i--) {
-			String[] values = wsvDocument.Lines.get(i).Values;
-			if (values != null) {
-				if (values.length == 1) {
-					return values[0];
-				} else if (values.length > 1) {
+	private static String determineEndKeyword(String content) {
+		try {
+			String[] values = getLastValueLine(content, 0);
+			if (values != null && values.length == 1) {
+				return values[0];
+			}
+		} catch (WsvParserException exception) {
+		}
+		return scanEndKeyword(content);
+	}
+	
+	// Parses lines backwards from the end of the text down to startIndex and
+	// returns the values of the last line that has any.
+	private static String[] getLastValueLine(String text, int startIndex) {
+		int lineEnd = text.length();
+		while (lineEnd >= startIndex) {
+			int lineStart = Math.max(text.lastIndexOf('\n', lineEnd - 1) + 1, startIndex);
+			String[] values = WsvParser.parseLineAsArray(new WsvCharIterator(text, lineStart, lineEnd));
+			if (values.length > 0) {
+				return values;
+			}
+			lineEnd = lineStart - 1;
+		}
+		return null;
+	}
+	
+	// Reads growing chunks from the end of the channel until the trailing lines
+	// contain a value line, then seeks back to where the stream left off. Returns
+	// null when the tail alone cannot tell, e.g. because it has a WSV error.
+	private static String[] readLastValueLine(SeekableByteChannel channel, long contentStart, 
+			ReliableTxtEncoding encoding) throws IOException {
+		long position = channel.position();
+		try {
+			return readLastValueLine(channel, contentStart, encoding, channel.size());
+		} finally {
+			channel.position(position);
+		}
+	}
+	
+	private static String[] readLastValueLine(SeekableByteChannel channel, long contentStart, 
+			ReliableTxtEncoding encoding, long end) throws IOException {
+		for (long chunkSize = TAIL_CHUNK_SIZE; ; chunkSize *= 2) {
+			long chunkStart = Math.max(contentStart, end - chunkSize);
+			chunkStart -= (chunkStart - contentStart) % getCodeUnitSize(encoding);
+			if (end - chunkStart > MAX_TAIL_CHUNK_SIZE) {
+				return null;
+			}
+			boolean isWholeContent = chunkStart == contentStart;
+			
+			ByteBuffer buffer = ByteBuffer.allocate((int)(end - chunkStart));
+			channel.position(chunkStart);
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer) < 0) {
+					break;
+				}
+			}
+			byte[] bytes = buffer.array();
+			int offset = isWholeContent ? 0 : getCharacterStart(bytes, encoding);
+			String text = new String(bytes, offset, buffer.position() - offset, encoding.getCharset());
+			
+			int startIndex = 0;
+			if (!isWholeContent) {
+				startIndex = text.indexOf('\n') + 1;
+				if (startIndex == 0) {
+					continue;
+				}
+			}
+			String[] values;
+			try {
+				values = getLastValueLine(text, startIndex);
+			} catch (WsvParserException exception) {
+				return null;
+			}
+			if (values != null || isWholeContent) {
+				return values;
+			}
+		}
+	}
+	
+	// Streams that cannot be read from the end fall back to "End". When the tail
+	// does not give a keyword, the remaining lines are read, so the first WSV
+	// error is reported with its position, as parseDocument(String) does.
+	static String determineEndKeyword(WsvStreamReader reader) throws IOException {
+		SeekableByteChannel channel = reader.getSeekableChannel();
+		if (channel == null) {
+			return "End";
+		}
+		String[] values = readLastValueLine(channel, reader.getContentStart(), reader.Encoding);
+		if (values != null && values.length == 1) {
+			return values[0];
+		}
+		int lastLineIndex = -1;
+		try {
+			while (reader.readLine(false) != null) {
+				lastLineIndex++;
+			}
+		} catch (WsvParserException exception) {
+			reader.skipRemaining();
+			throw exception;
+		}
+		throw new SmlParserException(lastLineIndex, END_KEYWORD_COULD_NOT_BE_DETECTED);
+	}
+	
+	private static int getCodeUnitSize(ReliableTxtEncoding encoding) {
+		if (encoding == ReliableTxtEncoding.UTF_16 || encoding == ReliableTxtEncoding.UTF_16_REVERSE) {
+			return 2;
+		} else if (encoding == ReliableTxtEncoding.UTF_32) {
+			return 4;
+		}
+		return 1;
+	}
+	
+	private static int getCharacterStart(byte[] bytes, ReliableTxtEncoding encoding) {
+		if (encoding == ReliableTxtEncoding.UTF_8) {
+			int offset = 0;
+			while (offset < bytes.length && offset < 3 && (bytes[offset] & 0xC0) == 0x80) {
+				offset++;
+			}
+			return offset;
+		} else if (bytes.length >= 2) {
+			int highByte = encoding == ReliableTxtEncoding.UTF_16 ? bytes[0] : 
+					encoding == ReliableTxtEncoding.UTF_16_REVERSE ? bytes[1] : 0;
+			if ((highByte & 0xFC) == 0xDC) {
+				return 2;
+			}
+		}
+		return 0;
+	}
+	
+	// Fallback when the trailing lines do not yield an end keyword. Only
+	// tokenizes the whole content, so that the reported error is the same
+	// one a full WSV parse would give.
+	private static String scanEndKeyword(String content) {
+		WsvTokenReader reader = new WsvTokenReader(content);
+		int lineIndex = 0;
+		int valueCount = 0;
+		int firstValueStart = 0;
+		int firstValueEnd = 0;
+		WsvTokenType firstValueType = null;
+		boolean isFirstValueQuoted = false;
+		
+		int lastValueCount = 0;
+		int keywordStart = 0;
+		int keywordEnd = 0;
+		WsvTokenType keywordType = null;
+		boolean isKeywordQuoted = false;
+		while (true) {
+			WsvTokenType tokenType = reader.next();
+			if (tokenType.isValue()) {
+				if (valueCount == 0) {
+					firstValueStart = reader.getTokenStart();
+					firstValueEnd = reader.getTokenEnd();
+					firstValueType = tokenType;
+					isFirstValueQuoted = reader.isQuoted();
+				}
+				valueCount++;
+			} else if (tokenType == WsvTokenType.LINE_END || tokenType == WsvTokenType.EOF) {
+				if (valueCount > 0) {
+					lastValueCount = valueCount;
+					keywordStart = firstValueStart;
+					keywordEnd = firstValueEnd;
+					keywordType = firstValueType;
+					isKeywordQuoted = isFirstValueQuoted;
+				}
+				if (tokenType == WsvTokenType.EOF) {
 					break;
 				}
+				valueCount = 0;
+				lineIndex++;
 			}
 		}
-		throw new SmlParserException(wsvDocument.Lines.size()-1, END_KEYWORD_COULD_NOT_BE_DETECTED);
+		if (lastValueCount != 1) {
+			throw new SmlParserException(lineIndex, END_KEYWORD_COULD_NOT_BE_DETECTED);
+		}
+		if (keywordType == WsvTokenType.NULL_VALUE) {
+			return null;
+		} else if (isKeywordQuoted) {
+			StringBuilder sb = new StringBuilder();
+			WsvString.appendUnescaped(sb, content, keywordStart, keywordEnd);
+			return sb.toString();
+		}
+		return content.substring(keywordStart, keywordEnd);
 	}
 	
 	private static SmlParserException getException(WsvLineIterator iterator, String message) {
@@ -1146,8 +1976,24 @@ class SmlParser {
 	}
 	
 	public static SmlDocument parseDocumentNonPreserving(String content) throws IOException {
-		String[][] wsvLines = WsvDocument.parseAsJaggedArray(content);
-		return parseDocument(wsvLines);
+		return parseDocumentNonPreserving(content, null);
+	}
+	
+	public static SmlDocument parseDocumentNonPreserving(String content, WsvValueCache valueCache) throws IOException {
+		String endKeyword = determineEndKeyword(content);
+		WsvTokenReader reader = new WsvTokenReader(content, valueCache);
+		WsvLineIterator iterator = new WsvTokenArrayLineIterator(reader, endKeyword);
+		
+		SmlDocument document = new SmlDocument();
+		document.setEndKeyword(endKeyword);
+		
+		try {
+			SmlElement rootElement = parseDocumentNonPreserving(iterator);
+			document.setRoot(rootElement);
+		} catch (SmlParserException exception) {
+			throw preferWsvException(reader, exception);
+		}
+		return document;
 	}
 		
 	public static SmlDocument parseDocument(String[][] wsvLines) throws IOException {
@@ -1302,6 +2148,131 @@ class WsvDocumentLineIterator implements WsvLineIterator {
 	}
 }
 
+class WsvTokenLineIterator implements WsvLineIterator {
+	private final WsvTokenReader reader;
+	private final String endKeyword;
+	private final ArrayList<String> values = new ArrayList<>();
+	private final ArrayList<String> whitespaces = new ArrayList<>();
+	private WsvLine currentLine;
+
+	int index;
+
+	public WsvTokenLineIterator(WsvTokenReader reader, String endKeyword) {
+		this.reader = reader;
+		this.endKeyword = endKeyword;
+
+		currentLine = WsvParser.readLine(reader, values, whitespaces);
+	}
+
+	@Override
+	public String getEndKeyword() {
+		return endKeyword;
+	}
+
+	@Override
+	public boolean hasLine() {
+		return currentLine != null;
+	}
+
+	@Override
+	public boolean isEmptyLine() {
+		return hasLine() && !currentLine.hasValues();
+	}
+
+	@Override
+	public WsvLine getLine() {
+		WsvLine result = currentLine;
+		if (reader.getTokenType() == WsvTokenType.EOF) {
+			currentLine = null;
+		} else {
+			currentLine = WsvParser.readLine(reader, values, whitespaces);
+		}
+		index++;
+		return result;
+	}
+
+	@Override
+	public String[] getLineAsArray() {
+		return getLine().Values;
+	}
+
+	@Override
+	public String toString() {
+		String result = "(" + index + "): ";
+		if (hasLine()) {
+			result += currentLine.toString();
+		}
+		return result;
+	}
+
+	@Override
+	public int getLineIndex() {
+		return index;
+	}
+}
+
+class WsvTokenArrayLineIterator implements WsvLineIterator {
+	private final WsvTokenReader reader;
+	private final String endKeyword;
+	private final ArrayList<String> values = new ArrayList<>();
+	private String[] currentLine;
+
+	int index;
+
+	public WsvTokenArrayLineIterator(WsvTokenReader reader, String endKeyword) {
+		this.reader = reader;
+		this.endKeyword = endKeyword;
+
+		currentLine = WsvParser.readLineAsArray(reader, values);
+	}
+
+	@Override
+	public String getEndKeyword() {
+		return endKeyword;
+	}
+
+	@Override
+	public boolean hasLine() {
+		return currentLine != null;
+	}
+
+	@Override
+	public boolean isEmptyLine() {
+		return hasLine() && currentLine.length == 0;
+	}
+
+	@Override
+	public WsvLine getLine() {
+		return new WsvLine(getLineAsArray());
+	}
+
+	@Override
+	public String[] getLineAsArray() {
+		String[] result = currentLine;
+		if (reader.getTokenType() == WsvTokenType.EOF) {
+			currentLine = null;
+		} else {
+			currentLine = WsvParser.readLineAsArray(reader, values);
+		}
+		index++;
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		String result = "(" + index + "): ";
+		if (hasLine()) {
+			result += WsvSerializer.serializeLine(currentLine);
+		}
+		return result;
+	}
+
+	@Override
+	public int getLineIndex() {
+		return index;
+	}
+}
+
 class WsvJaggedArrayLineIterator implements WsvLineIterator {
 	private final String[][] lines;
 	String endKeyword;
@@ -1366,7 +2337,6 @@ class WsvStreamLineIterator implements WsvLineIterator {
 	int index;
 
 	public WsvStreamLineIterator(WsvStreamReader reader, String endKeyword) throws IOException {
-		Objects.requireNonNull(endKeyword);
 		this.reader = reader;
 		this.endKeyword = endKeyword;
 
@@ -1522,10 +2492,22 @@ class SmlStreamReader implements AutoCloseable {
 	}
 	
 	public SmlStreamReader(String filePath, String endKeyword) throws IOException {
-		reader = new WsvStreamReader(filePath);
+		this(new WsvStreamReader(filePath), endKeyword);
+	}
+	
+	public SmlStreamReader(InputStream inputStream) throws IOException {
+		this(inputStream, null);
+	}
+	
+	public SmlStreamReader(InputStream inputStream, String endKeyword) throws IOException {
+		this(new WsvStreamReader(inputStream), endKeyword);
+	}
+	
+	SmlStreamReader(WsvStreamReader reader, String endKeyword) throws IOException {
+		this.reader = reader;
 		Encoding = reader.Encoding;
 		if (endKeyword == null) {
-			endKeyword = "End";
+			endKeyword = SmlParser.determineEndKeyword(reader);
 		}
 		this.endKeyword = endKeyword;
 		
@@ -1544,6 +2526,181 @@ class SmlStreamReader implements AutoCloseable {
 	}
 }
 
+enum SmlEventType {
+	START_ELEMENT,
+	ATTRIBUTE,
+	EMPTY,
+	END_ELEMENT,
+	EOF
+}
+
+class SmlEventReader implements AutoCloseable {
+	public final ReliableTxtEncoding Encoding;
+	WsvStreamReader reader;
+	final String endKeyword;
+	
+	private final ArrayList<String> openElementNames = new ArrayList<>();
+	private boolean hasRoot;
+	private int lineCount;
+	
+	private SmlEventType eventType;
+	private int depth;
+	private String name;
+	private String[] values;
+	private WsvLine line;
+	
+	public SmlEventReader(String filePath) throws IOException {
+		this(filePath, null);
+	}
+	
+	public SmlEventReader(String filePath, String endKeyword) throws IOException {
+		this(new WsvStreamReader(filePath), endKeyword);
+	}
+	
+	public SmlEventReader(InputStream inputStream) throws IOException {
+		this(inputStream, null);
+	}
+	
+	public SmlEventReader(InputStream inputStream, String endKeyword) throws IOException {
+		this(new WsvStreamReader(inputStream), endKeyword);
+	}
+	
+	public SmlEventReader(ReadableByteChannel channel) throws IOException {
+		this(channel, null);
+	}
+	
+	public SmlEventReader(ReadableByteChannel channel, String endKeyword) throws IOException {
+		this(new WsvStreamReader(channel), endKeyword);
+	}
+	
+	SmlEventReader(WsvStreamReader reader, String endKeyword) throws IOException {
+		this.reader = reader;
+		Encoding = reader.Encoding;
+		if (endKeyword == null) {
+			endKeyword = SmlParser.determineEndKeyword(reader);
+		}
+		this.endKeyword = endKeyword;
+	}
+	
+	// Only one line and the names of the open elements are held at a time,
+	// so memory does not grow with the size of a subtree.
+	public SmlEventType next() throws IOException {
+		if (eventType == SmlEventType.EOF) {
+			return eventType;
+		}
+		name = null;
+		values = null;
+		line = reader.readLine();
+		if (line == null) {
+			if (!openElementNames.isEmpty()) {
+				throw new SmlParserException(lineCount-1, "Element \""+openElementNames.get(openElementNames.size()-1)+"\" not closed");
+			} else if (!hasRoot) {
+				throw new SmlParserException(lineCount, SmlParser.ROOT_ELEMENT_EXPECTED);
+			}
+			depth = 0;
+			return eventType = SmlEventType.EOF;
+		}
+		lineCount++;
+		
+		depth = openElementNames.size();
+		if (!line.hasValues()) {
+			return eventType = SmlEventType.EMPTY;
+		}
+		String firstValue = line.Values[0];
+		if (!hasRoot) {
+			if (line.Values.length != 1 || SmlParser.equalIgnoreCase(endKeyword, firstValue)) {
+				throw new SmlParserException(lineCount-1, SmlParser.INVALID_ROOT_ELEMENT_START);
+			}
+			hasRoot = true;
+		} else if (openElementNames.isEmpty()) {
+			throw new SmlParserException(lineCount-1, SmlParser.ONLY_ONE_ROOT_ELEMENT_ALLOWED);
+		}
+		
+		if (line.Values.length == 1) {
+			if (SmlParser.equalIgnoreCase(endKeyword, firstValue)) {
+				name = openElementNames.remove(openElementNames.size()-1);
+				depth = openElementNames.size();
+				return eventType = SmlEventType.END_ELEMENT;
+			}
+			if (firstValue == null) {
+				throw new SmlParserException(lineCount-1, SmlParser.NULL_VALUE_AS_ELEMENT_NAME_IS_NOT_ALLOWED);
+			}
+			name = firstValue;
+			openElementNames.add(name);
+			return eventType = SmlEventType.START_ELEMENT;
+		} else {
+			if (firstValue == null) {
+				throw new SmlParserException(lineCount-1, SmlParser.NULL_VALUE_AS_ATTRIBUTE_NAME_IS_NOT_ALLOWED);
+			}
+			name = firstValue;
+			values = Arrays.copyOfRange(line.Values, 1, line.Values.length);
+			return eventType = SmlEventType.ATTRIBUTE;
+		}
+	}
+	
+	public SmlEventType getEventType() {
+		return eventType;
+	}
+	
+	public int getDepth() {
+		return depth;
+	}
+	
+	public String getName() {
+		return name;
+	}
+	
+	public String[] getValues() {
+		return values;
+	}
+	
+	public String[] getWhitespaces() {
+		return line == null ? null : WsvBasedFormat.getWhitespaces(line);
+	}
+	
+	public String getComment() {
+		return line == null ? null : line.getComment();
+	}
+	
+	public int getLineIndex() {
+		return lineCount-1;
+	}
+	
+	public String getEndKeyword() {
+		return endKeyword;
+	}
+	
+	// A full parse decodes the whole text, then tokenizes it and then builds
+	// the tree before the content is checked. Reading on from an error lets
+	// callers report invalid data, WSV, SML and content errors in that order.
+	RuntimeException finish(RuntimeException exception) throws IOException {
+		try {
+			if (exception instanceof SmlParserException) {
+				while (reader.readLine(false) != null) {
+				}
+			} else if (!(exception instanceof WsvParserException)) {
+				while (next() != SmlEventType.EOF) {
+				}
+			}
+			reader.skipRemaining();
+		} catch (WsvParserException | SmlParserException laterException) {
+			return finish(laterException);
+		}
+		return exception;
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			reader.close();
+		} catch (IOException | RuntimeException exception) {
+			throw exception;
+		} catch (Exception exception) {
+			throw new IOException(exception);
+		}
+	}
+}
+
 class SmlStreamWriter implements AutoCloseable {
 	WsvStreamWriter writer;
 	WsvDocument wsvDocument;
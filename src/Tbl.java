@@ -1,6 +1,9 @@
 package com.stenway.loextensions.formats;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Objects;
 
 class TblDocument {
@@ -43,8 +46,23 @@ class TblDocument {
 	}
 	
 	public static TblDocument parse(String content) {
-		SmlDocument smlDocument = SmlDocument.parse(content, false);
-		return TblParser.parseElement(smlDocument.getRoot());
+		return parse(content, null);
+	}
+	
+	public static TblDocument parse(String content, WsvValueCache valueCache) {
+		SmlElement rootElement = TblParser.parseRootElement(content, valueCache);
+		return TblParser.parseElement(rootElement);
+	}
+	
+	public static TblDocument parse(String content, WsvValueCache valueCache, String[] columnNames) {
+		TblColumnProjection projection = new TblColumnProjection(columnNames);
+		String[][] wsvLines = WsvParser.parseDocumentAsJaggedArray(content, valueCache, projection);
+		try {
+			SmlElement rootElement = SmlParser.parseDocument(wsvLines).getRoot();
+			return TblParser.parseElement(rootElement);
+		} catch (IOException exception) {
+			throw new RuntimeException();
+		}
 	}
 }
 
@@ -52,8 +70,97 @@ class TblMetaData {
 	public String title;
 }
 
+class TblColumnProjection implements WsvLineProjection {
+	private static final int ROOT_ELEMENT = 0;
+	private static final int COLUMN_NAMES = 1;
+	private static final int META_BEFORE_COLUMN_NAMES = 2;
+	private static final int ROWS = 3;
+	private static final int META = 4;
+	
+	private final String[] columnNames;
+	private WsvColumnSelection selection;
+	private int state = ROOT_ELEMENT;
+	
+	public TblColumnProjection(String... columnNames) {
+		Objects.requireNonNull(columnNames);
+		if (columnNames.length == 0) { throw new IllegalArgumentException("At least one column must be selected"); }
+		this.columnNames = columnNames;
+	}
+	
+	@Override
+	public WsvColumnSelection getColumnSelection() {
+		return state == ROWS ? selection : null;
+	}
+	
+	@Override
+	public String[] lineParsed(String[] values, int cellCount) {
+		if (cellCount == 0) {
+			return values;
+		}
+		switch (state) {
+			case ROOT_ELEMENT:
+				state = COLUMN_NAMES;
+				break;
+			case COLUMN_NAMES:
+				if (cellCount == 1) {
+					state = META_BEFORE_COLUMN_NAMES;
+				} else {
+					values = selectColumns(values);
+					state = ROWS;
+				}
+				break;
+			case META_BEFORE_COLUMN_NAMES:
+				if (cellCount == 1) { state = COLUMN_NAMES; }
+				break;
+			case ROWS:
+				if (cellCount == 1) {
+					state = META;
+					return Arrays.copyOf(values, 1);
+				}
+				break;
+			case META:
+				if (cellCount == 1) { state = ROWS; }
+				break;
+		}
+		return values;
+	}
+	
+	private String[] selectColumns(String[] allColumnNames) {
+		int[] columnIndices = new int[columnNames.length+1];
+		int count = 1;
+		for (String columnName : columnNames) {
+			int columnIndex = indexOf(allColumnNames, columnName);
+			if (columnIndex < 0) { throw new IllegalArgumentException("Column \""+columnName+"\" does not exist"); }
+			if (columnIndex > 0) {
+				columnIndices[count++] = columnIndex;
+			}
+		}
+		if (count < 2) { throw new IllegalArgumentException("At least one column besides the first one must be selected"); }
+		columnIndices = Arrays.copyOf(columnIndices, count);
+		selection = new WsvColumnSelection(columnIndices);
+		
+		String[] selectedColumnNames = new String[count];
+		for (int i=0; i<count; i++) {
+			selectedColumnNames[i] = allColumnNames[columnIndices[i]];
+		}
+		return selectedColumnNames;
+	}
+	
+	private static int indexOf(String[] values, String value) {
+		for (int i=0; i<values.length; i++) {
+			if (Objects.equals(value, values[i])) {
+				return i;
+			}
+		}
+		return -1;
+	}
+}
+
 class TblParser {
-	private static String[] combine(String name, String[] values) {
+	static final String ONLY_ONE_META_ELEMENT_ALLOWED = "Only one meta element is allowed";
+	static final String ONLY_META_ELEMENT_ALLOWED = "Only meta element is allowed";
+	
+	static String[] combine(String name, String[] values) {
 		String[] result = new String[values.length + 1];
 		result[0] = name;
 		System.arraycopy(values, 0, result, 1, values.length);
@@ -65,38 +172,61 @@ class TblParser {
 	}
 	
 	private static String getSingleStringOrNull(SmlElement element, String name) {
-		if (element.hasAttribute(name)) {
-			if (element.attributes(name).length > 1) { throw new IllegalArgumentException("Only one \""+name+"\" attribute allowed"); }
-			SmlAttribute attribute = element.attribute(name);
-			if (attribute.getValues().length > 1) { throw new IllegalArgumentException("Only one value in meta attribute\""+name+"\" allowed"); }
-			return attribute.getString();
+		SmlAttribute attribute = null;
+		List<SmlAttribute> attributes = element.attributesView();
+		for (int i=0; i<attributes.size(); i++) {
+			if (attributes.get(i).hasName(name)) {
+				if (attribute != null) { throw getMultipleAttributesException(name); }
+				attribute = attributes.get(i);
+			}
+		}
+		if (attribute != null) {
+			return getSingleString(name, attribute.getValues());
 		} else {
 			return null;
 		}
 	}
 	
+	static IllegalArgumentException getMultipleAttributesException(String name) {
+		return new IllegalArgumentException("Only one \""+name+"\" attribute allowed");
+	}
+	
+	static String getSingleString(String name, String[] values) {
+		if (values.length > 1) { throw new IllegalArgumentException("Only one value in meta attribute\""+name+"\" allowed"); }
+		return values[0];
+	}
+	
+	static SmlElement parseRootElement(String content, WsvValueCache valueCache) {
+		try {
+			return SmlParser.parseDocumentNonPreserving(content, valueCache).getRoot();
+		} catch (IOException exception) {
+			throw new RuntimeException();
+		}
+	}
+	
 	public static TblDocument parseElement(SmlElement element) {
 		if (!element.hasName("Table")) { throw new IllegalArgumentException("Not a valid table document"); }
 		
-		SmlAttribute[] attributes = element.attributes();
-		if (attributes.length == 0) { throw new IllegalArgumentException("No column names"); }
-		SmlAttribute columnNamesAttribute = attributes[0];
+		List<SmlAttribute> attributes = element.attributesView();
+		if (attributes.size() == 0) { throw new IllegalArgumentException("No column names"); }
+		SmlAttribute columnNamesAttribute = attributes.get(0);
 		for (String value : columnNamesAttribute.getValues()) {
 			if (value == null) { throw new IllegalArgumentException("Column name cannot be null"); }
 		}
 		String[] columnNames = combine(columnNamesAttribute.getName(), columnNamesAttribute.getValues());
 		TblDocument document = new TblDocument(columnNames);
 		
+		List<SmlElement> elements = element.elementsView();
 		if (element.hasElement("Meta")) {
-			if (element.elements().length > 1) { throw new IllegalArgumentException("Only one meta element is allowed"); }
+			if (elements.size() > 1) { throw new IllegalArgumentException(ONLY_ONE_META_ELEMENT_ALLOWED); }
 			//if (!element.namedNodes()[0].isElement()) { throw new Error("Meta element must be first node")}
 			parseMeta(document.meta, element.element("Meta"));
 		} else {
-			if (element.elements().length > 0) { throw new IllegalArgumentException("Only meta element is allowed"); }
+			if (elements.size() > 0) { throw new IllegalArgumentException(ONLY_META_ELEMENT_ALLOWED); }
 		}
 
-		for (int i=1; i<attributes.length; i++) {
-			SmlAttribute rowAttribute = attributes[i];
+		for (int i=1; i<attributes.size(); i++) {
+			SmlAttribute rowAttribute = attributes.get(i);
 			String[] rowValues = combine(rowAttribute.getName(), rowAttribute.getValues());
 			document.addRow(rowValues);
 		}
@@ -119,13 +249,102 @@ class TblsDocument {
 	}
 	
 	public static TblsDocument parse(String content) {
+		return parse(content, null);
+	}
+	
+	public static TblsDocument parse(String content, WsvValueCache valueCache) {
 		TblsDocument document = new TblsDocument();
-		SmlDocument smlDocument = SmlDocument.parse(content, false);
-		SmlElement rootElement = smlDocument.getRoot();
+		SmlElement rootElement = TblParser.parseRootElement(content, valueCache);
 		if (!rootElement.hasName("Tables")) { throw new IllegalArgumentException("Not a valid tables document"); }
-		for (SmlElement tableElement : rootElement.elements("Table")) {
+		rootElement.forEachElement("Table", tableElement -> {
 			TblDocument tableDocument = TblParser.parseElement(tableElement);
 			document.tables.add(tableDocument);
+		});
+		return document;
+	}
+	
+	// Only the rows of the tables are kept, not the text or an element tree.
+	// Errors are reported in the same order as by parse(String).
+	public static TblsDocument parse(SmlEventReader reader) throws IOException {
+		try {
+			return parseEvents(reader);
+		} catch (IllegalArgumentException | SmlParserException | WsvParserException exception) {
+			throw reader.finish(exception);
+		}
+	}
+	
+	private static TblsDocument parseEvents(SmlEventReader reader) throws IOException {
+		TblsDocument document = new TblsDocument();
+		TblElementContent table = null;
+		SmlEventType eventType;
+		while ((eventType = reader.next()) != SmlEventType.EOF) {
+			int depth = reader.getDepth();
+			if (depth == 0) {
+				if (eventType == SmlEventType.START_ELEMENT && !"Tables".equalsIgnoreCase(reader.getName())) {
+					throw new IllegalArgumentException("Not a valid tables document");
+				}
+			} else if (depth == 1) {
+				if (eventType == SmlEventType.START_ELEMENT && "Table".equalsIgnoreCase(reader.getName())) {
+					table = new TblElementContent();
+				} else if (eventType == SmlEventType.END_ELEMENT && table != null) {
+					document.tables.add(table.createDocument());
+					table = null;
+				}
+			} else if (table != null) {
+				table.add(eventType, depth, reader.getName(), reader.getValues());
+			}
+		}
+		return document;
+	}
+}
+
+// Collects the parts of a Table element that TblParser.parseElement looks at
+// and checks them in the same order.
+class TblElementContent {
+	private final ArrayList<String[]> attributes = new ArrayList<>();
+	private int elementCount;
+	private int metaCount;
+	private boolean isInMeta;
+	private int titleCount;
+	private String[] titleValues;
+	
+	public void add(SmlEventType eventType, int depth, String name, String[] values) {
+		if (depth == 2) {
+			if (eventType == SmlEventType.ATTRIBUTE) {
+				attributes.add(TblParser.combine(name, values));
+			} else if (eventType == SmlEventType.START_ELEMENT) {
+				elementCount++;
+				if ("Meta".equalsIgnoreCase(name)) {
+					metaCount++;
+					isInMeta = metaCount == 1;
+				}
+			} else if (eventType == SmlEventType.END_ELEMENT) {
+				isInMeta = false;
+			}
+		} else if (depth == 3 && isInMeta && eventType == SmlEventType.ATTRIBUTE && "Title".equalsIgnoreCase(name)) {
+			titleCount++;
+			if (titleCount == 1) {
+				titleValues = values;
+			}
+		}
+	}
+	
+	public TblDocument createDocument() {
+		if (attributes.size() == 0) { throw new IllegalArgumentException("No column names"); }
+		TblDocument document = new TblDocument(attributes.get(0));
+		
+		if (metaCount > 0) {
+			if (elementCount > 1) { throw new IllegalArgumentException(TblParser.ONLY_ONE_META_ELEMENT_ALLOWED); }
+			if (titleCount > 1) { throw TblParser.getMultipleAttributesException("Title"); }
+			if (titleValues != null) {
+				document.meta.title = TblParser.getSingleString("Title", titleValues);
+			}
+		} else {
+			if (elementCount > 0) { throw new IllegalArgumentException(TblParser.ONLY_META_ELEMENT_ALLOWED); }
+		}
+		
+		for (int i=1; i<attributes.size(); i++) {
+			document.addRow(attributes.get(i));
 		}
 		return document;
 	}
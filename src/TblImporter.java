@@ -10,36 +10,29 @@ public class TblImporter {
 	}
 	
 	public void importTbl() {
-		byte[] bytes = stream.readAllBytes();
-		ReliableTxtDocument reliableTxtDocument = new ReliableTxtDocument(bytes);
-		TblDocument tblDocument = TblDocument.parse(reliableTxtDocument.getText());
+		ReliableTxtDocument reliableTxtDocument = stream.readReliableTxtDocument();
+		String[] selectedColumns = stream.getSelectedColumns();
+		TblDocument tblDocument;
+		if (selectedColumns == null) {
+			tblDocument = TblDocument.parse(reliableTxtDocument.getText(), new WsvValueCache());
+		} else {
+			tblDocument = TblDocument.parse(reliableTxtDocument.getText(), new WsvValueCache(), selectedColumns);
+		}
 		
 		Spreadsheet spreadsheet = spreadsheetDocument.getSpreadsheet(0);
 		setTblDocument(tblDocument, spreadsheet, 0, 0);
 	}
 	
 	static void setTblDocument(TblDocument tblDocument, Spreadsheet spreadsheet, int offsetX, int offsetY) {
-		int rowIndex = offsetY;
 		String[] columnNames = tblDocument.getColumnNames();
-		for (int i=0; i<columnNames.length; i++) {
-			spreadsheet.setCellText(offsetX+i, rowIndex, columnNames[i]);
-		}
-		spreadsheet.getRowCells(rowIndex).setOptimalHeight(true);
-		rowIndex++;
-		
 		String[][] rows = tblDocument.getRows();
-		for (String[] row : rows) {
-			for (int i=0; i<row.length; i++) {
-				String currentValue = row[i];
-				if (currentValue != null) {
-					spreadsheet.setCellText(offsetX+i, rowIndex, currentValue);
-				}
-			}
-			spreadsheet.getRowCells(rowIndex).setOptimalHeight(true);
-			rowIndex++;
-		}
-		for (int i=0; i<columnNames.length; i++) {
-			spreadsheet.getColumnCells(offsetX+i).setOptimalWidth(true);
-		}
+		String[][] cells = new String[rows.length+1][];
+		cells[0] = columnNames;
+		System.arraycopy(rows, 0, cells, 1, rows.length);
+		spreadsheet.setCellTexts(offsetX, offsetY, cells);
+		
+		CellRange usedArea = spreadsheet.getUsedArea();
+		usedArea.setOptimalWidth(true);
+		usedArea.setOptimalHeight(true);
 	}
 }
\ No newline at end of file
@@ -1,5 +1,7 @@
 package com.stenway.loextensions.formats;
 
+import java.io.IOException;
+
 public class TblsImporter {
 	private final SpreadsheetDocument spreadsheetDocument;
 	private final FilterStream stream;
@@ -10,9 +12,12 @@ public class TblsImporter {
 	}
 	
 	public void importTbls() {
-		byte[] bytes = stream.readAllBytes();
-		ReliableTxtDocument reliableTxtDocument = new ReliableTxtDocument(bytes);
-		TblsDocument tblsDocument = TblsDocument.parse(reliableTxtDocument.getText());
+		TblsDocument tblsDocument;
+		try (SmlEventReader reader = stream.openSmlEventReader()) {
+			tblsDocument = TblsDocument.parse(reader);
+		} catch (IOException e) {
+			throw new RuntimeException("Reading stream failed", e);
+		}
 		
 		boolean isFirst = true;
 		String defaultSheetName = spreadsheetDocument.getSpreadsheetNames()[0];
@@ -13,18 +13,21 @@ import com.sun.star.datatransfer.UnsupportedFlavorException;
 import com.sun.star.datatransfer.XTransferable;
 import com.sun.star.datatransfer.clipboard.XClipboard;
 import com.sun.star.datatransfer.clipboard.XClipboardOwner;
+import com.sun.star.document.XActionLockable;
 import com.sun.star.frame.XComponentLoader;
 import com.sun.star.frame.XController;
 import com.sun.star.frame.XDesktop;
 import com.sun.star.frame.XModel;
 import com.sun.star.io.XInputStream;
 import com.sun.star.io.XOutputStream;
+import com.sun.star.io.XSeekable;
 import com.sun.star.lang.XComponent;
 import com.sun.star.lang.XInitialization;
 import com.sun.star.lang.XMultiComponentFactory;
+import com.sun.star.sheet.XCalculatable;
 import com.sun.star.sheet.XCellRangeAddressable;
+import com.sun.star.sheet.XCellRangeData;
 import com.sun.star.sheet.XSheetCellCursor;
-import com.sun.star.sheet.XSheetCellRange;
 import com.sun.star.sheet.XSpreadsheet;
 import com.sun.star.sheet.XSpreadsheetDocument;
 import com.sun.star.sheet.XSpreadsheetView;
@@ -53,7 +56,14 @@ import java.net.URL;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Objects;
-import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.function.IntFunction;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
 
 class Utils {
 	private static XComponentContext componentContext;
@@ -238,9 +248,67 @@ class SpreadsheetDocument {
 			throw new RuntimeException("Could not remove spreadsheet with name '"+name+"'", e);
 		}
 	}
+	
+	public ImportTransaction beginImportTransaction() {
+		return new ImportTransaction(document, model);
+	}
+}
+
+class ImportTransaction implements AutoCloseable {
+	private final XModel model;
+	private final XActionLockable actionLockable;
+	private final XCalculatable calculatable;
+	private boolean controllersLocked;
+	private boolean actionLocked;
+	private boolean automaticCalculationDisabled;
+	
+	ImportTransaction(XSpreadsheetDocument document, XModel model) {
+		this.model = model;
+		actionLockable = UnoRuntime.queryInterface(XActionLockable.class, document);
+		calculatable = UnoRuntime.queryInterface(XCalculatable.class, document);
+		try {
+			model.lockControllers();
+			controllersLocked = true;
+			if (actionLockable != null) {
+				actionLockable.addActionLock();
+				actionLocked = true;
+			}
+			if (calculatable != null && calculatable.isAutomaticCalculationEnabled()) {
+				calculatable.enableAutomaticCalculation(false);
+				automaticCalculationDisabled = true;
+			}
+		} catch (RuntimeException e) {
+			close();
+			throw e;
+		}
+	}
+	
+	@Override
+	public void close() {
+		try {
+			if (automaticCalculationDisabled) {
+				automaticCalculationDisabled = false;
+				calculatable.enableAutomaticCalculation(true);
+			}
+		} finally {
+			try {
+				if (actionLocked) {
+					actionLocked = false;
+					actionLockable.removeActionLock();
+				}
+			} finally {
+				if (controllersLocked) {
+					controllersLocked = false;
+					model.unlockControllers();
+				}
+			}
+		}
+	}
 }
 
 class Spreadsheet {
+	public static final int DEFAULT_BATCH_HEIGHT = 1000;
+	
 	private XSpreadsheet spreadsheet;
 	
 	public Spreadsheet(XSpreadsheet spreadsheet) {
@@ -268,6 +336,61 @@ class Spreadsheet {
 		}
 	}
 	
+	public void setCellTexts(int x, int y, String[][] rows) {
+		setCellTexts(x, y, rows, DEFAULT_BATCH_HEIGHT);
+	}
+	
+	public void setCellTexts(int x, int y, String[][] rows, int batchHeight) {
+		Objects.requireNonNull(rows);
+		setCellTexts(x, y, rows.length, i -> rows[i], batchHeight);
+	}
+	
+	public void setCellTexts(int x, int y, WsvTable table) {
+		setCellTexts(x, y, table, DEFAULT_BATCH_HEIGHT);
+	}
+	
+	public void setCellTexts(int x, int y, WsvTable table, int batchHeight) {
+		Objects.requireNonNull(table);
+		setCellTexts(x, y, table.getRowCount(), table::getRow, batchHeight);
+	}
+	
+	private void setCellTexts(int x, int y, int rowCount, IntFunction<String[]> rowProvider, int batchHeight) {
+		if (batchHeight < 1) { throw new IllegalArgumentException("Batch height must be at least 1"); }
+		for (int batchStart=0; batchStart<rowCount; batchStart+=batchHeight) {
+			int batchEnd = Math.min(batchStart+batchHeight, rowCount);
+			String[][] batchRows = new String[batchEnd-batchStart][];
+			int batchWidth = 0;
+			for (int i=0; i<batchRows.length; i++) {
+				String[] row = rowProvider.apply(batchStart+i);
+				batchRows[i] = row;
+				if (row != null && row.length > batchWidth) {
+					batchWidth = row.length;
+				}
+			}
+			if (batchWidth == 0) { continue; }
+			
+			Object[][] data = new Object[batchRows.length][batchWidth];
+			for (int i=0; i<batchRows.length; i++) {
+				String[] row = batchRows[i];
+				Object[] dataRow = data[i];
+				for (int j=0; j<batchWidth; j++) {
+					String value = null;
+					if (row != null && j < row.length) {
+						value = row[j];
+					}
+					dataRow[j] = value != null ? value : "";
+				}
+			}
+			try {
+				XCellRange cellRange = spreadsheet.getCellRangeByPosition(x, y+batchStart, x+batchWidth-1, y+batchEnd-1);
+				XCellRangeData cellRangeData = Utils.getInterface(XCellRangeData.class, cellRange);
+				cellRangeData.setDataArray(data);
+			} catch (Exception e) {
+				throw new RuntimeException("Could not set cell texts of rows "+(y+batchStart)+" to "+(y+batchEnd-1), e);
+			}
+		}
+	}
+	
 	public CellRange getColumnCells(int columnIndex) {
 		XColumnRowRange columnRowRange = Utils.getInterface(XColumnRowRange.class, spreadsheet);
 		XTableColumns tableColumns = columnRowRange.getColumns();
@@ -312,15 +435,14 @@ class CellRange {
 	}
 	
 	public void setOptimalHeight(boolean enabled) {
-		Utils.setProperty(cellRange, "OptimalHeight", enabled);
-		
-		XSheetCellRange sheetCellRange = Utils.getInterface(XSheetCellRange.class, cellRange);
-		XPropertySet propertySet = Utils.getInterface(XPropertySet.class, sheetCellRange);
-		Utils.setProperty(propertySet, "VertJustify", CellVertJustify.CENTER);
+		XColumnRowRange columnRowRange = Utils.getInterface(XColumnRowRange.class, cellRange);
+		Utils.setProperty(columnRowRange.getRows(), "OptimalHeight", enabled);
+		Utils.setProperty(cellRange, "VertJustify", CellVertJustify.CENTER);
 	}
 	
 	public void setOptimalWidth(boolean enabled) {
-		Utils.setProperty(cellRange, "OptimalWidth", enabled);
+		XColumnRowRange columnRowRange = Utils.getInterface(XColumnRowRange.class, cellRange);
+		Utils.setProperty(columnRowRange.getColumns(), "OptimalWidth", enabled);
 	}
 	
 	public Rectangle getDimensions() {
@@ -467,6 +589,7 @@ class FilterStream {
 	public XInputStream inputStream;
 	public XOutputStream outputStream;
 	public String fileName;
+	public String filterOptions;
 	public boolean isOwner;
 
 	public FilterStream(boolean isImport, PropertyValue[] propertyValues) {
@@ -478,6 +601,8 @@ class FilterStream {
 					inputStream = (XInputStream)AnyConverter.toObject(new Type(XInputStream.class), propertyValue.Value);
 				} else if (propertyValue.Name.equals("OutputStream")) {
 					outputStream = (XOutputStream)AnyConverter.toObject(new Type(XOutputStream.class), propertyValue.Value);
+				} else if (propertyValue.Name.equals("FilterOptions")) {
+					filterOptions = AnyConverter.toString(propertyValue.Value);
 				}
 			}
 			
@@ -499,25 +624,90 @@ class FilterStream {
 		if (!(inputStream != null || outputStream != null)) { throw new RuntimeException("FilterStream initialization failed"); }
 	}
 	
+	public static final int DEFAULT_READ_SIZE = 1048576;
+	
+	public String[] getSelectedColumns() {
+		if (filterOptions == null) {
+			return null;
+		}
+		String[] selectedColumns = WsvLine.parseAsArray(filterOptions);
+		return selectedColumns.length > 0 ? selectedColumns : null;
+	}
+	
+	public long getRemainingLength() {
+		XSeekable seekable = UnoRuntime.queryInterface(XSeekable.class, inputStream);
+		if (seekable == null) {
+			return -1;
+		}
+		try {
+			return seekable.getLength() - seekable.getPosition();
+		} catch (Exception e) {
+			return -1;
+		}
+	}
+	
+	public InputStream getInputStream() {
+		return getInputStream(DEFAULT_READ_SIZE);
+	}
+	
+	public InputStream getInputStream(int readSize) {
+		Objects.requireNonNull(inputStream);
+		return new UnoInputStream(inputStream, readSize, getRemainingLength());
+	}
+	
+	public ReliableTxtDocument readReliableTxtDocument() {
+		try {
+			return ReliableTxtDocument.load(getInputStream());
+		} catch (IOException e) {
+			throw new RuntimeException("Reading stream failed", e);
+		}
+	}
+	
+	public SmlEventReader openSmlEventReader() {
+		return openSmlEventReader(null);
+	}
+	
+	public SmlEventReader openSmlEventReader(String endKeyword) {
+		Objects.requireNonNull(inputStream);
+		try {
+			XSeekable seekable = UnoRuntime.queryInterface(XSeekable.class, inputStream);
+			if (seekable != null) {
+				return new SmlEventReader(new UnoSeekableChannel(inputStream, seekable, DEFAULT_READ_SIZE), endKeyword);
+			}
+			return new SmlEventReader(getInputStream(), endKeyword);
+		} catch (IOException e) {
+			throw new RuntimeException("Reading stream failed", e);
+		}
+	}
+	
 	public byte[] readAllBytes() {
-		byte[] byteArray;
 		try {
-			ByteArrayOutputStream buffer = new ByteArrayOutputStream();
-			
-			int maxChunkSize = 4096;
-			byte[][] chunkBuffer = new byte[1][];
+			long remainingLength = getRemainingLength();
+			int capacity = DEFAULT_READ_SIZE;
+			if (remainingLength >= 0 && remainingLength < Integer.MAX_VALUE) {
+				capacity = (int)remainingLength;
+			}
+			byte[] byteArray = new byte[capacity];
+			int numBytes = 0;
+			InputStream stream = getInputStream();
 			while (true) {
-				int numReadBytes = inputStream.readBytes(chunkBuffer, maxChunkSize);
-				if (numReadBytes == 0) { break; }
-				buffer.write(chunkBuffer[0], 0, numReadBytes);
-				if (numReadBytes < maxChunkSize) { break; }
+				if (numBytes == byteArray.length) {
+					int probe = stream.read();
+					if (probe < 0) { break; }
+					byteArray = Arrays.copyOf(byteArray, Math.max(byteArray.length * 2, DEFAULT_READ_SIZE));
+					byteArray[numBytes++] = (byte)probe;
+				}
+				int numReadBytes = stream.read(byteArray, numBytes, byteArray.length - numBytes);
+				if (numReadBytes < 0) { break; }
+				numBytes += numReadBytes;
 			}
-			
-			byteArray = buffer.toByteArray();
+			if (numBytes == byteArray.length) {
+				return byteArray;
+			}
+			return Arrays.copyOf(byteArray, numBytes);
 		} catch (Exception e) {
 			throw new RuntimeException("Reading stream failed", e);
 		}
-		return byteArray;
 	}
 	
 	public void close() {
@@ -530,4 +720,154 @@ class FilterStream {
 		isOwner = false;
 		
 	}
-}
\ No newline at end of file
+}
+
+class UnoInputStream extends InputStream {
+	private final XInputStream inputStream;
+	private final int readSize;
+	private final byte[][] chunkBuffer = new byte[1][];
+	private final byte[] singleByte = new byte[1];
+	private long remainingLength;
+	
+	public UnoInputStream(XInputStream inputStream, int readSize, long remainingLength) {
+		Objects.requireNonNull(inputStream);
+		if (readSize < 1) { throw new IllegalArgumentException("Read size must be at least 1"); }
+		this.inputStream = inputStream;
+		this.readSize = readSize;
+		this.remainingLength = remainingLength;
+	}
+	
+	@Override
+	public int read() throws IOException {
+		if (read(singleByte, 0, 1) < 0) {
+			return -1;
+		}
+		return singleByte[0] & 0xFF;
+	}
+	
+	@Override
+	public int read(byte[] bytes, int offset, int length) throws IOException {
+		if (offset < 0 || length < 0 || length > bytes.length - offset) {
+			throw new IndexOutOfBoundsException();
+		}
+		if (length == 0) {
+			return 0;
+		}
+		int numReadBytes;
+		try {
+			numReadBytes = inputStream.readSomeBytes(chunkBuffer, Math.min(length, readSize));
+		} catch (Exception e) {
+			throw new IOException("Reading stream failed", e);
+		}
+		if (numReadBytes <= 0) {
+			return -1;
+		}
+		System.arraycopy(chunkBuffer[0], 0, bytes, offset, numReadBytes);
+		chunkBuffer[0] = null;
+		if (remainingLength > 0) {
+			remainingLength = Math.max(remainingLength - numReadBytes, 0);
+		}
+		return numReadBytes;
+	}
+	
+	@Override
+	public int available() throws IOException {
+		if (remainingLength >= 0) {
+			return (int)Math.min(remainingLength, Integer.MAX_VALUE);
+		}
+		try {
+			return inputStream.available();
+		} catch (Exception e) {
+			throw new IOException("Reading stream failed", e);
+		}
+	}
+}
+
+class UnoSeekableChannel implements SeekableByteChannel {
+	private final XInputStream inputStream;
+	private final XSeekable seekable;
+	private final int readSize;
+	private final byte[][] chunkBuffer = new byte[1][];
+	private boolean isOpen = true;
+	
+	public UnoSeekableChannel(XInputStream inputStream, XSeekable seekable, int readSize) {
+		Objects.requireNonNull(inputStream);
+		Objects.requireNonNull(seekable);
+		if (readSize < 1) { throw new IllegalArgumentException("Read size must be at least 1"); }
+		this.inputStream = inputStream;
+		this.seekable = seekable;
+		this.readSize = readSize;
+	}
+	
+	@Override
+	public int read(ByteBuffer buffer) throws IOException {
+		if (!isOpen) { throw new ClosedChannelException(); }
+		if (!buffer.hasRemaining()) {
+			return 0;
+		}
+		int numReadBytes;
+		try {
+			numReadBytes = inputStream.readSomeBytes(chunkBuffer, Math.min(buffer.remaining(), readSize));
+		} catch (Exception e) {
+			throw new IOException("Reading stream failed", e);
+		}
+		if (numReadBytes <= 0) {
+			return -1;
+		}
+		buffer.put(chunkBuffer[0], 0, numReadBytes);
+		chunkBuffer[0] = null;
+		return numReadBytes;
+	}
+	
+	@Override
+	public int write(ByteBuffer buffer) {
+		throw new NonWritableChannelException();
+	}
+	
+	@Override
+	public long position() throws IOException {
+		if (!isOpen) { throw new ClosedChannelException(); }
+		try {
+			return seekable.getPosition();
+		} catch (Exception e) {
+			throw new IOException("Seeking stream failed", e);
+		}
+	}
+	
+	@Override
+	public SeekableByteChannel position(long position) throws IOException {
+		if (!isOpen) { throw new ClosedChannelException(); }
+		try {
+			seekable.seek(position);
+		} catch (Exception e) {
+			throw new IOException("Seeking stream failed", e);
+		}
+		return this;
+	}
+	
+	@Override
+	public long size() throws IOException {
+		if (!isOpen) { throw new ClosedChannelException(); }
+		try {
+			return seekable.getLength();
+		} catch (Exception e) {
+			throw new IOException("Seeking stream failed", e);
+		}
+	}
+	
+	@Override
+	public SeekableByteChannel truncate(long size) {
+		throw new NonWritableChannelException();
+	}
+	
+	@Override
+	public boolean isOpen() {
+		return isOpen;
+	}
+	
+	// The UNO stream belongs to the filter stream and is closed there.
+	@Override
+	public void close() {
+		isOpen = false;
+	}
+}
@@ -1,11 +1,43 @@
 package com.stenway.loextensions.formats;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.IntUnaryOperator;
+import java.util.function.Predicate;
 
 class WsvChar {
-	public static boolean isWhitespace(int c) {
+	private static final byte WHITESPACE = 1;
+	private static final byte SPECIAL = 2;
+	private static final byte[] LATIN1_CHAR_CLASSES = createLatin1CharClasses();
+	
+	private static byte[] createLatin1CharClasses() {
+		byte[] charClasses = new byte[256];
+		for (int c=0; c<charClasses.length; c++) {
+			if (isWhitespaceCodePoint(c)) {
+				charClasses[c] = WHITESPACE | SPECIAL;
+			}
+		}
+		charClasses['\n'] = SPECIAL;
+		charClasses['#'] = SPECIAL;
+		charClasses['"'] = SPECIAL;
+		return charClasses;
+	}
+	
+	private static boolean isWhitespaceCodePoint(int c) {
 		return c == 0x09 || 
 				(c >= 0x0B && c <= 0x0D) ||
 				c == 0x0020 ||
@@ -20,6 +52,20 @@ class WsvChar {
 				c == 0x3000;
 	}
 	
+	public static boolean isWhitespace(int c) {
+		if (c >= 0 && c < 256) {
+			return (LATIN1_CHAR_CLASSES[c] & WHITESPACE) != 0;
+		}
+		return c >= 0x1680 && isWhitespaceCodePoint(c);
+	}
+	
+	public static boolean isSpecial(int c) {
+		if (c >= 0 && c < 256) {
+			return LATIN1_CHAR_CLASSES[c] != 0;
+		}
+		return c >= 0x1680 && isWhitespaceCodePoint(c);
+	}
+	
 	public static int[] getWhitespaceCodePoints() {
 		return new int[] {
 			0x0009,
@@ -217,8 +263,9 @@ class WsvDocument {
 	}
 
 	public void save(String filePath) throws IOException {
-		String content = toString();
-		ReliableTxtDocument.save(content, encoding, filePath);
+		Objects.requireNonNull(filePath);
+		
+		ReliableTxtEncodingWriter.writeFile(filePath, encoding, writer -> WsvSerializer.serializeDocument(this, writer));
 	}
 
 	public static WsvDocument load(String filePath) throws IOException {
@@ -231,6 +278,27 @@ class WsvDocument {
 		document.encoding = txt.getEncoding();
 		return document;
 	}
+	
+	public static WsvDocument loadMapped(String filePath) throws IOException {
+		return loadMapped(filePath, true);
+	}
+	
+	public static WsvDocument loadMapped(String filePath, boolean preserveWhitespaceAndComments) throws IOException {
+		try (ReliableTxtStreamReader txtReader = ReliableTxtStreamReader.openMapped(filePath)) {
+			WsvStreamReader reader = new WsvStreamReader(txtReader);
+			WsvDocument document = new WsvDocument(reader.Encoding);
+			try {
+				WsvLine line;
+				while ((line = reader.readLine(preserveWhitespaceAndComments)) != null) {
+					document.addLine(line);
+				}
+			} catch (WsvParserException exception) {
+				txtReader.skipRemaining();
+				throw exception;
+			}
+			return document;
+		}
+	}
 
 	public static WsvDocument parse(String content) {
 		return parse(content, true);
@@ -247,9 +315,465 @@ class WsvDocument {
 	public static String[][] parseAsJaggedArray(String content) {
 		return WsvParser.parseDocumentAsJaggedArray(content);
 	}
+	
+	public static String[][] parseAsJaggedArray(String content, WsvValueCache valueCache) {
+		return WsvParser.parseDocumentAsJaggedArray(content, valueCache);
+	}
+	
+	public static String[][] parseAsJaggedArray(byte[] bytes) {
+		return parseAsJaggedArray(bytes, false);
+	}
+	
+	public static String[][] parseAsJaggedArrayParallel(byte[] bytes) {
+		return parseAsJaggedArray(bytes, true);
+	}
+	
+	private static String[][] parseAsJaggedArray(byte[] bytes, boolean parallel) {
+		ReliableTxtEncoding encoding = ReliableTxtDecoder.getEncoding(bytes);
+		if (encoding == ReliableTxtEncoding.UTF_8) {
+			int preambleLength = encoding.getPreambleLength();
+			if (parallel) {
+				return WsvUtf8Parser.parseDocumentAsJaggedArrayParallel(bytes, preambleLength, bytes.length-preambleLength);
+			}
+			return WsvUtf8Parser.parseDocumentAsJaggedArray(bytes, preambleLength, bytes.length-preambleLength);
+		} else {
+			String content = new ReliableTxtDocument(bytes).getText();
+			if (parallel) {
+				return parseAsJaggedArrayParallel(content);
+			}
+			return parseAsJaggedArray(content);
+		}
+	}
+	
+	public static WsvDocument parseParallel(String content) {
+		return parseParallel(content, true);
+	}
+	
+	public static WsvDocument parseParallel(String content, boolean preserveWhitespaceAndComments) {
+		if (preserveWhitespaceAndComments) {
+			return WsvParser.parseDocumentParallel(content);
+		} else {
+			return WsvParser.parseDocumentNonPreservingParallel(content);
+		}
+	}
+	
+	public static String[][] parseAsJaggedArrayParallel(String content) {
+		return WsvParser.parseDocumentAsJaggedArrayParallel(content);
+	}
+}
+
+class WsvTable {
+	static final byte VALUE = 0;
+	static final byte NULL = 1;
+	static final byte STRING = 2;
+	
+	private final String text;
+	private final byte[] bytes;
+	private int[] rowOffsets = new int[16];
+	private int rowCount;
+	private int[] cellStarts = new int[64];
+	private int[] cellEnds = new int[64];
+	private byte[] cellTypes = new byte[64];
+	private int cellCount;
+	
+	WsvTable(String text) {
+		Objects.requireNonNull(text);
+		this.text = text;
+		this.bytes = null;
+	}
+	
+	WsvTable(byte[] utf8Bytes) {
+		Objects.requireNonNull(utf8Bytes);
+		this.text = null;
+		this.bytes = utf8Bytes;
+	}
+	
+	void addCell(byte type, int startIndex, int endIndex) {
+		if (cellCount == cellTypes.length) {
+			int newCapacity = cellCount * 2;
+			cellStarts = Arrays.copyOf(cellStarts, newCapacity);
+			cellEnds = Arrays.copyOf(cellEnds, newCapacity);
+			cellTypes = Arrays.copyOf(cellTypes, newCapacity);
+		}
+		cellStarts[cellCount] = startIndex;
+		cellEnds[cellCount] = endIndex;
+		cellTypes[cellCount] = type;
+		cellCount++;
+	}
+	
+	void endRow() {
+		if (rowCount + 1 >= rowOffsets.length) {
+			rowOffsets = Arrays.copyOf(rowOffsets, rowOffsets.length * 2);
+		}
+		rowCount++;
+		rowOffsets[rowCount] = cellCount;
+	}
+	
+	void append(WsvTable other) {
+		if (other.text != text || other.bytes != bytes) {
+			throw new IllegalArgumentException("Tables do not share the same source");
+		}
+		for (int i=0; i<other.cellCount; i++) {
+			addCell(other.cellTypes[i], other.cellStarts[i], other.cellEnds[i]);
+		}
+		int cellOffset = rowOffsets[rowCount] - other.rowOffsets[0];
+		for (int i=1; i<=other.rowCount; i++) {
+			if (rowCount + 1 >= rowOffsets.length) {
+				rowOffsets = Arrays.copyOf(rowOffsets, rowOffsets.length * 2);
+			}
+			rowCount++;
+			rowOffsets[rowCount] = other.rowOffsets[i] + cellOffset;
+		}
+	}
+	
+	public int getRowCount() {
+		return rowCount;
+	}
+	
+	public int getCellCount(int rowIndex) {
+		checkRowIndex(rowIndex);
+		return rowOffsets[rowIndex+1] - rowOffsets[rowIndex];
+	}
+	
+	public int getMaxCellCount() {
+		int max = 0;
+		for (int i=0; i<rowCount; i++) {
+			max = Math.max(max, rowOffsets[i+1] - rowOffsets[i]);
+		}
+		return max;
+	}
+	
+	public boolean isNull(int rowIndex, int columnIndex) {
+		return cellTypes[getCellIndex(rowIndex, columnIndex)] == NULL;
+	}
+	
+	public CharSequence getCellView(int rowIndex, int columnIndex) {
+		int cellIndex = getCellIndex(rowIndex, columnIndex);
+		switch (cellTypes[cellIndex]) {
+			case NULL: return null;
+			case STRING: return unescape(cellStarts[cellIndex], cellEnds[cellIndex]);
+			default:
+				if (bytes != null) {
+					return getCell(cellIndex);
+				}
+				return CharBuffer.wrap(text, cellStarts[cellIndex], cellEnds[cellIndex]);
+		}
+	}
+	
+	public String getCell(int rowIndex, int columnIndex) {
+		return getCell(getCellIndex(rowIndex, columnIndex));
+	}
+	
+	public String[] getRow(int rowIndex) {
+		checkRowIndex(rowIndex);
+		int firstCellIndex = rowOffsets[rowIndex];
+		String[] values = new String[rowOffsets[rowIndex+1] - firstCellIndex];
+		for (int i=0; i<values.length; i++) {
+			values[i] = getCell(firstCellIndex + i);
+		}
+		return values;
+	}
+	
+	public String[][] toArray() {
+		String[][] array = new String[rowCount][];
+		for (int i=0; i<rowCount; i++) {
+			array[i] = getRow(i);
+		}
+		return array;
+	}
+	
+	private String getCell(int cellIndex) {
+		switch (cellTypes[cellIndex]) {
+			case NULL: return null;
+			case STRING: return unescape(cellStarts[cellIndex], cellEnds[cellIndex]);
+			default:
+				if (bytes != null) {
+					return new String(bytes, cellStarts[cellIndex], cellEnds[cellIndex] - cellStarts[cellIndex], StandardCharsets.UTF_8);
+				}
+				return text.substring(cellStarts[cellIndex], cellEnds[cellIndex]);
+		}
+	}
+	
+	private String unescape(int startIndex, int endIndex) {
+		if (bytes != null) {
+			return WsvString.unescapeUtf8(bytes, startIndex, endIndex);
+		}
+		StringBuilder sb = new StringBuilder(endIndex - startIndex);
+		WsvString.appendUnescaped(sb, text, startIndex, endIndex);
+		return sb.toString();
+	}
+	
+	private void checkRowIndex(int rowIndex) {
+		if (rowIndex < 0 || rowIndex >= rowCount) {
+			throw new IndexOutOfBoundsException("Row index "+rowIndex+" out of range");
+		}
+	}
+	
+	private int getCellIndex(int rowIndex, int columnIndex) {
+		checkRowIndex(rowIndex);
+		int firstCellIndex = rowOffsets[rowIndex];
+		if (columnIndex < 0 || columnIndex >= rowOffsets[rowIndex+1] - firstCellIndex) {
+			throw new IndexOutOfBoundsException("Column index "+columnIndex+" out of range");
+		}
+		return firstCellIndex + columnIndex;
+	}
+	
+	public static WsvTable parse(String content) {
+		return WsvParser.parseDocumentAsTable(content);
+	}
+	
+	public static WsvTable parse(String content, WsvColumnSelection selection) {
+		return WsvParser.parseDocumentAsTable(content, selection);
+	}
+	
+	public static WsvTable parse(byte[] bytes, WsvColumnSelection selection) {
+		return parse(bytes, selection, false);
+	}
+	
+	public static WsvTable parseParallel(byte[] bytes, WsvColumnSelection selection) {
+		return parse(bytes, selection, true);
+	}
+	
+	private static WsvTable parse(byte[] bytes, WsvColumnSelection selection, boolean parallel) {
+		ReliableTxtEncoding encoding = ReliableTxtDecoder.getEncoding(bytes);
+		if (encoding == ReliableTxtEncoding.UTF_8) {
+			int preambleLength = encoding.getPreambleLength();
+			return WsvUtf8Parser.parseDocumentAsTable(bytes, preambleLength, bytes.length-preambleLength, selection, parallel);
+		} else {
+			return parse(new ReliableTxtDocument(bytes).getText(), selection);
+		}
+	}
+}
+
+interface WsvRowFilter {
+	boolean accept(WsvCharIterator iterator);
+	
+	default WsvRowFilter and(WsvRowFilter other) {
+		Objects.requireNonNull(other);
+		return iterator -> {
+			int lineStartIndex = iterator.index;
+			if (!accept(iterator)) {
+				return false;
+			}
+			iterator.index = lineStartIndex;
+			return other.accept(iterator);
+		};
+	}
+	
+	static WsvRowFilter columnEquals(int columnIndex, String value) {
+		if (columnIndex < 0) { throw new IllegalArgumentException("Column index cannot be negative"); }
+		return iterator -> iterator.skipToColumn(columnIndex) && iterator.matchCell(value, false);
+	}
+	
+	static WsvRowFilter columnStartsWith(int columnIndex, String prefix) {
+		Objects.requireNonNull(prefix);
+		if (columnIndex < 0) { throw new IllegalArgumentException("Column index cannot be negative"); }
+		return iterator -> iterator.skipToColumn(columnIndex) && iterator.matchCell(prefix, true);
+	}
+	
+	static WsvRowFilter of(Predicate<String[]> predicate) {
+		Objects.requireNonNull(predicate);
+		return iterator -> predicate.test(WsvParser.parseLineAsArray(iterator));
+	}
+}
+
+interface WsvLineProjection {
+	WsvColumnSelection getColumnSelection();
+	
+	default String[] lineParsed(String[] values, int cellCount) {
+		return values;
+	}
+}
+
+class WsvColumnSelection implements WsvLineProjection {
+	private final int[] sortedColumnIndices;
+	private final int[] sortedSlots;
+	private final int width;
+	
+	public WsvColumnSelection(int... columnIndices) {
+		Objects.requireNonNull(columnIndices);
+		if (columnIndices.length == 0) { throw new IllegalArgumentException("At least one column must be selected"); }
+		long[] entries = new long[columnIndices.length];
+		for (int i=0; i<columnIndices.length; i++) {
+			if (columnIndices[i] < 0) { throw new IllegalArgumentException("Column index "+columnIndices[i]+" is out of range"); }
+			entries[i] = ((long)columnIndices[i] << 32) | i;
+		}
+		Arrays.sort(entries);
+		sortedColumnIndices = new int[entries.length];
+		sortedSlots = new int[entries.length];
+		for (int i=0; i<entries.length; i++) {
+			sortedColumnIndices[i] = (int)(entries[i] >>> 32);
+			sortedSlots[i] = (int)entries[i];
+			if (i > 0 && sortedColumnIndices[i] == sortedColumnIndices[i-1]) { throw new IllegalArgumentException("Column "+sortedColumnIndices[i]+" is selected more than once"); }
+		}
+		width = columnIndices.length;
+	}
+	
+	public int getWidth() {
+		return width;
+	}
+	
+	public int getSlot(int columnIndex) {
+		if (columnIndex > sortedColumnIndices[sortedColumnIndices.length-1]) {
+			return -1;
+		}
+		int i = Arrays.binarySearch(sortedColumnIndices, columnIndex);
+		return i >= 0 ? sortedSlots[i] : -1;
+	}
+	
+	@Override
+	public WsvColumnSelection getColumnSelection() {
+		return this;
+	}
+}
+
+class WsvValueCache {
+	public static final int DEFAULT_CAPACITY = 4096;
+	public static final int DEFAULT_MAX_VALUE_LENGTH = 32;
+	
+	private final String[] entries;
+	private final int mask;
+	private final int maxValueLength;
+	private long hitCount;
+	private long missCount;
+	
+	public WsvValueCache() {
+		this(DEFAULT_CAPACITY, DEFAULT_MAX_VALUE_LENGTH);
+	}
+	
+	public WsvValueCache(int capacity, int maxValueLength) {
+		if (capacity < 1 || (capacity & (capacity - 1)) != 0) { throw new IllegalArgumentException("Capacity must be a power of two"); }
+		if (maxValueLength < 0) { throw new IllegalArgumentException("Max value length cannot be negative"); }
+		this.entries = new String[capacity];
+		this.mask = capacity - 1;
+		this.maxValueLength = maxValueLength;
+	}
+	
+	public String get(CharSequence chars, int startIndex, int endIndex) {
+		int length = endIndex - startIndex;
+		if (length > maxValueLength) {
+			return chars.subSequence(startIndex, endIndex).toString();
+		}
+		int hash = 0;
+		for (int i=startIndex; i<endIndex; i++) {
+			hash = 31 * hash + chars.charAt(i);
+		}
+		int slot = (hash ^ (hash >>> 16)) & mask;
+		String entry = entries[slot];
+		if (entry != null && entry.hashCode() == hash && regionEquals(entry, chars, startIndex, length)) {
+			hitCount++;
+			return entry;
+		}
+		missCount++;
+		String value = chars.subSequence(startIndex, endIndex).toString();
+		entries[slot] = value;
+		return value;
+	}
+	
+	private static boolean regionEquals(String entry, CharSequence chars, int startIndex, int length) {
+		if (entry.length() != length) {
+			return false;
+		}
+		for (int i=0; i<length; i++) {
+			if (entry.charAt(i) != chars.charAt(startIndex+i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	public long getHitCount() {
+		return hitCount;
+	}
+	
+	public long getMissCount() {
+		return missCount;
+	}
+	
+	public void clear() {
+		Arrays.fill(entries, null);
+		hitCount = 0;
+		missCount = 0;
+	}
 }
 
 class WsvString {
+	static void appendUnescaped(StringBuilder sb, String text, int startIndex, int endIndex) {
+		int i = startIndex + 1;
+		int contentEnd = endIndex - 1;
+		while (i < contentEnd) {
+			char c = text.charAt(i);
+			if (c == '"') {
+				if (text.charAt(i+1) == '"') {
+					sb.append('"');
+					i += 2;
+				} else {
+					sb.append('\n');
+					i += 3;
+				}
+			} else {
+				int runStart = i;
+				while (i < contentEnd && text.charAt(i) != '"') {
+					i++;
+				}
+				sb.append(text, runStart, i);
+			}
+		}
+	}
+	
+	static String unescapeUtf8(byte[] bytes, int startIndex, int endIndex) {
+		byte[] buffer = new byte[endIndex - startIndex];
+		int length = 0;
+		int i = startIndex + 1;
+		int contentEnd = endIndex - 1;
+		while (i < contentEnd) {
+			byte b = bytes[i];
+			if (b == '"') {
+				if (bytes[i+1] == '"') {
+					buffer[length++] = '"';
+					i += 2;
+				} else {
+					buffer[length++] = '\n';
+					i += 3;
+				}
+			} else {
+				buffer[length++] = b;
+				i++;
+			}
+		}
+		return new String(buffer, 0, length, StandardCharsets.UTF_8);
+	}
+	
+	// Scans UTF-16 units; no surrogate unit is special and every special
+	// code point is in the BMP, so this matches a code point scan.
+	static int indexOfSpecialChar(String value) {
+		int length = value.length();
+		for (int i=0; i<length; i++) {
+			if (WsvChar.isSpecial(value.charAt(i))) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	static void appendEscaped(StringBuilder sb, String value, int startIndex) {
+		int length = value.length();
+		int runStart = 0;
+		for (int i=startIndex; i<length; i++) {
+			char c = value.charAt(i);
+			if (c == '"') {
+				sb.append(value, runStart, i);
+				sb.append("\"\"");
+				runStart = i + 1;
+			} else if (c == '\n') {
+				sb.append(value, runStart, i);
+				sb.append("\"/\"");
+				runStart = i + 1;
+			}
+		}
+		sb.append(value, runStart, length);
+	}
+	
 	public static boolean isWhitespace(String str) {
 		if (str == null || str.length() == 0) {
 			return false;
@@ -268,54 +792,49 @@ class WsvParserException extends RuntimeException {
 	public final int Index;
 	public final int LineIndex;
 	public final int LinePosition;
+	private final String reason;
 	
 	WsvParserException(int index, int lineIndex, int linePosition, String message) {
 		super(String.format("%s (%d, %d)", message, lineIndex + 1, linePosition + 1));
 		Index = index;
 		LineIndex = lineIndex;
 		LinePosition = linePosition;
+		reason = message;
+	}
+	
+	WsvParserException withOffset(long indexOffset, int lineIndexOffset) {
+		int index = (int)Math.min(Index + indexOffset, Integer.MAX_VALUE);
+		return new WsvParserException(index, LineIndex + lineIndexOffset, LinePosition, reason);
 	}
 }
 
 class WsvParser {
 	private static final String MULTIPLE_WSV_LINES_NOT_ALLOWED = "Multiple WSV lines not allowed";
-	private static final String UNEXPECTED_PARSER_ERROR = "Unexpected parser error";
 	
-	private static WsvLine parseLine(WsvCharIterator iterator, 
+	static WsvLine readLine(WsvTokenReader reader, 
 			ArrayList<String> values, ArrayList<String> whitespaces) {
 		values.clear();
 		whitespaces.clear();
 		
-		String whitespace = iterator.readWhitespaceOrNull();
-		whitespaces.add(whitespace);
-
-		while (!iterator.isChar('\n') && !iterator.isEndOfText()) {
-			String value;
-			if(iterator.isChar('#')) {
-				break;
-			} else if(iterator.tryReadChar('"')) {
-				value = iterator.readString();
-			} else {
-				value = iterator.readValue();
-				if (value.equals("-")) {
-					value = null;
-				}
-			}
-			values.add(value);
+		WsvTokenType tokenType = reader.next();
+		whitespaces.add(reader.getWhitespace());
 
-			whitespace = iterator.readWhitespaceOrNull();
-			if (whitespace == null) {
-				break;
+		while (tokenType == WsvTokenType.VALUE || tokenType == WsvTokenType.NULL_VALUE) {
+			values.add(reader.getString());
+			
+			tokenType = reader.next();
+			if (reader.hasWhitespace()) {
+				whitespaces.add(reader.getWhitespace());
 			}
-			whitespaces.add(whitespace);
 		}
 		
 		String comment = null;
-		if(iterator.tryReadChar('#')) {
-			comment = iterator.readCommentText();
-			if (whitespace == null) {
+		if (tokenType == WsvTokenType.COMMENT) {
+			comment = reader.getString();
+			if (!reader.hasWhitespace()) {
 				whitespaces.add(null);
 			}
+			reader.next();
 		}
 
 		String[] valueArray = new String[values.size()];
@@ -328,44 +847,50 @@ class WsvParser {
 		return newLine;
 	}
 	
+	private static void checkSingleLine(WsvTokenReader reader) {
+		if (reader.getTokenType() == WsvTokenType.LINE_END) {
+			throw reader.getException(MULTIPLE_WSV_LINES_NOT_ALLOWED);
+		}
+	}
+	
 	public static WsvLine parseLine(String content) {
-		WsvCharIterator iterator = new WsvCharIterator(content);
+		WsvTokenReader reader = new WsvTokenReader(content);
 		ArrayList<String> values = new ArrayList<>();
 		ArrayList<String> whitespaces = new ArrayList<>();
 		
-		WsvLine newLine = parseLine(iterator, values, whitespaces);
-		if (iterator.isChar('\n')) {
-			throw iterator.getException(MULTIPLE_WSV_LINES_NOT_ALLOWED);
-		} else if (!iterator.isEndOfText()) {
-			throw iterator.getException(UNEXPECTED_PARSER_ERROR);
-		}
+		WsvLine newLine = readLine(reader, values, whitespaces);
+		checkSingleLine(reader);
 		
 		return newLine;
 	}
 	
 	public static WsvDocument parseDocument(String content) {
+		return parseDocument(content, null);
+	}
+	
+	public static WsvDocument parseDocument(String content, WsvValueCache valueCache) {
 		WsvDocument document = new WsvDocument();
-		
-		WsvCharIterator iterator = new WsvCharIterator(content);
+		document.Lines.addAll(parseLines(new WsvCharIterator(content, valueCache)));
+		return document;
+	}
+	
+	public static WsvDocument parseDocumentParallel(String content) {
+		WsvDocument document = new WsvDocument();
+		document.Lines.addAll(parseParallel(content, WsvParser::parseLines));
+		return document;
+	}
+	
+	private static ArrayList<WsvLine> parseLines(WsvCharIterator iterator) {
+		WsvTokenReader reader = new WsvTokenReader(iterator);
+		ArrayList<WsvLine> lines = new ArrayList<>();
 		ArrayList<String> values = new ArrayList<>();
 		ArrayList<String> whitespaces = new ArrayList<>();
 		
-		while (true) {
-			WsvLine newLine = parseLine(iterator, values, whitespaces);
-			document.addLine(newLine);
-			
-			if (iterator.isEndOfText()) {
-				break;
-			} else if(!iterator.tryReadChar('\n')) {
-				throw iterator.getException(UNEXPECTED_PARSER_ERROR);
-			}
-		}
-		
-		if (!iterator.isEndOfText()) {
-			throw iterator.getException(UNEXPECTED_PARSER_ERROR);
-		}
+		do {
+			lines.add(readLine(reader, values, whitespaces));
+		} while (reader.getTokenType() != WsvTokenType.EOF);
 
-		return document;
+		return lines;
 	}
 	
 	public static WsvLine parseLineNonPreserving(String content) {
@@ -374,113 +899,438 @@ class WsvParser {
 	}
 	
 	public static WsvDocument parseDocumentNonPreserving(String content) {
+		return parseDocumentNonPreserving(content, null);
+	}
+	
+	public static WsvDocument parseDocumentNonPreserving(String content, WsvValueCache valueCache) {
+		return toDocument(parseLinesAsArrays(new WsvCharIterator(content, valueCache)));
+	}
+	
+	public static WsvDocument parseDocumentNonPreservingParallel(String content) {
+		return toDocument(parseParallel(content, WsvParser::parseLinesAsArrays));
+	}
+	
+	private static WsvDocument toDocument(List<String[]> lines) {
 		WsvDocument document = new WsvDocument();
-		
-		WsvCharIterator iterator = new WsvCharIterator(content);
-		ArrayList<String> values = new ArrayList<>();
-		
-		while (true) {
-			String[] lineValues = parseLineAsArray(iterator, values);
-			WsvLine newLine = new WsvLine(lineValues);
-			document.addLine(newLine);
-			
-			if (iterator.isEndOfText()) {
-				break;
-			} else if(!iterator.tryReadChar('\n')) {
-				throw iterator.getException(UNEXPECTED_PARSER_ERROR);
-			}
-		}
-		
-		if (!iterator.isEndOfText()) {
-			throw iterator.getException(UNEXPECTED_PARSER_ERROR);
+		for (String[] lineValues : lines) {
+			document.addLine(new WsvLine(lineValues));
 		}
-
 		return document;
 	}
 	
-	public static String[][] parseDocumentAsJaggedArray(String content) {
-		WsvCharIterator iterator = new WsvCharIterator(content);
-		ArrayList<String> values = new ArrayList<>();
-		ArrayList<String[]> lines = new ArrayList<>();
-		
-		while (true) {
-			String[] newLine = parseLineAsArray(iterator, values);
-			lines.add(newLine);
-			
-			if (iterator.isEndOfText()) {
-				break;
-			} else if(!iterator.tryReadChar('\n')) {
-				throw iterator.getException(UNEXPECTED_PARSER_ERROR);
-			}
-		}
-		
-		if (!iterator.isEndOfText()) {
-			throw iterator.getException(UNEXPECTED_PARSER_ERROR);
-		}
-		
+	private static String[][] toJaggedArray(List<String[]> lines) {
 		String[][] linesArray = new String[lines.size()][];
 		lines.toArray(linesArray);
 		return linesArray;
 	}
 	
-	public static String[] parseLineAsArray(String content) {
-		WsvCharIterator iterator = new WsvCharIterator(content);
+	public static String[][] parseDocumentAsJaggedArray(String content) {
+		return parseDocumentAsJaggedArray(content, null);
+	}
+	
+	public static String[][] parseDocumentAsJaggedArray(String content, WsvValueCache valueCache) {
+		return toJaggedArray(parseLinesAsArrays(new WsvCharIterator(content, valueCache)));
+	}
+	
+	public static String[][] parseDocumentAsJaggedArrayParallel(String content) {
+		return toJaggedArray(parseParallel(content, WsvParser::parseLinesAsArrays));
+	}
+	
+	private static ArrayList<String[]> parseLinesAsArrays(WsvCharIterator iterator) {
+		WsvTokenReader reader = new WsvTokenReader(iterator);
 		ArrayList<String> values = new ArrayList<>();
-		String[] result = parseLineAsArray(iterator, values);
-		if (iterator.isChar('\n')) {
-			throw iterator.getException(MULTIPLE_WSV_LINES_NOT_ALLOWED);
-		} else if (!iterator.isEndOfText()) {
-			throw iterator.getException(UNEXPECTED_PARSER_ERROR);
-		}
-		return result;
+		ArrayList<String[]> lines = new ArrayList<>();
+		
+		do {
+			lines.add(readLineAsArray(reader, values));
+		} while (reader.getTokenType() != WsvTokenType.EOF);
+		
+		return lines;
 	}
 	
-	private static String[] parseLineAsArray(WsvCharIterator iterator, ArrayList<String> values) {
-		values.clear();
-		iterator.skipWhitespace();
-
-		while (!iterator.isChar('\n') && !iterator.isEndOfText()) {
-			String value;
-			if(iterator.isChar('#')) {
-				break;
-			} else if(iterator.tryReadChar('"')) {
-				value = iterator.readString();
+	public static String[][] parseDocumentAsJaggedArray(String content, WsvValueCache valueCache, 
+			WsvLineProjection projection) {
+		Objects.requireNonNull(projection);
+		WsvTokenReader reader = new WsvTokenReader(content, valueCache);
+		ArrayList<String> values = new ArrayList<>();
+		ArrayList<String[]> lines = new ArrayList<>();
+		
+		do {
+			WsvColumnSelection selection = projection.getColumnSelection();
+			String[] newLine;
+			int cellCount;
+			if (selection == null) {
+				newLine = readLineAsArray(reader, values);
+				cellCount = newLine.length;
 			} else {
-				value = iterator.readValue();
-				if (value.equals("-")) {
-					value = null;
+				newLine = new String[selection.getWidth()];
+				cellCount = readLineAsArray(reader, selection, newLine);
+				if (cellCount == 0) {
+					newLine = new String[0];
 				}
 			}
-			values.add(value);
-
-			if (!iterator.skipWhitespace()) {
-				break;
+			lines.add(projection.lineParsed(newLine, cellCount));
+		} while (reader.getTokenType() != WsvTokenType.EOF);
+		
+		return toJaggedArray(lines);
+	}
+	
+	private static <T> List<T> parseParallel(String content, 
+			Function<WsvCharIterator, ArrayList<T>> parser) {
+		return WsvChunkTask.parseAll(content.length(), 
+				fromIndex -> content.indexOf('\n', fromIndex),
+				(startIndex, endIndex) -> parser.apply(new WsvCharIterator(content, startIndex, endIndex)));
+	}
+	
+	public static String[] parseLineAsArray(String content) {
+		WsvTokenReader reader = new WsvTokenReader(content);
+		String[] result = readLineAsArray(reader, new ArrayList<>());
+		checkSingleLine(reader);
+		return result;
+	}
+	
+	static String[] parseLineAsArray(WsvCharIterator iterator) {
+		return readLineAsArray(new WsvTokenReader(iterator), new ArrayList<>());
+	}
+	
+	public static String[][] parseDocumentAsJaggedArray(String content, WsvValueCache valueCache, 
+			WsvRowFilter filter) {
+		Objects.requireNonNull(filter);
+		WsvCharIterator iterator = new WsvCharIterator(content, valueCache);
+		WsvTokenReader reader = new WsvTokenReader(iterator);
+		ArrayList<String> values = new ArrayList<>();
+		ArrayList<String[]> lines = new ArrayList<>();
+		
+		do {
+			reader.skipLineEnd();
+			if (acceptLine(iterator, filter)) {
+				lines.add(readLineAsArray(reader, values));
+			} else {
+				reader.next();
 			}
-		}
+		} while (reader.getTokenType() != WsvTokenType.EOF);
 		
-		String comment = null;
-		if(iterator.tryReadChar('#')) {
-			iterator.skipCommentText();
+		return toJaggedArray(lines);
+	}
+	
+	public static boolean acceptsLine(String content, WsvRowFilter filter) {
+		WsvCharIterator iterator = new WsvCharIterator(content);
+		if (acceptLine(iterator, filter)) {
+			return true;
+		}
+		WsvTokenReader reader = new WsvTokenReader(iterator);
+		reader.next();
+		checkSingleLine(reader);
+		return false;
+	}
+	
+	private static boolean acceptLine(WsvCharIterator iterator, WsvRowFilter filter) {
+		int lineStartIndex = iterator.index;
+		boolean accepted = filter.accept(iterator);
+		iterator.index = lineStartIndex;
+		if (!accepted) {
+			iterator.skipLineValues();
+		}
+		return accepted;
+	}
+	
+	public static String[] parseLineAsArray(String content, WsvColumnSelection selection) {
+		WsvTokenReader reader = new WsvTokenReader(content);
+		String[] values = new String[selection.getWidth()];
+		int cellCount = readLineAsArray(reader, selection, values);
+		checkSingleLine(reader);
+		return cellCount == 0 ? new String[0] : values;
+	}
+	
+	private static int readLineAsArray(WsvTokenReader reader, WsvColumnSelection selection, String[] values) {
+		int columnIndex = 0;
+		while (reader.next().isValue()) {
+			int slot = selection.getSlot(columnIndex);
+			if (slot >= 0) {
+				values[slot] = reader.getString();
+			}
+			columnIndex++;
+		}
+		reader.skipComment();
+		return columnIndex;
+	}
+	
+	static String[] readLineAsArray(WsvTokenReader reader, ArrayList<String> values) {
+		values.clear();
+		while (reader.next().isValue()) {
+			values.add(reader.getString());
 		}
+		reader.skipComment();
 
 		String[] valueArray = new String[values.size()];
 		values.toArray(valueArray);
 		return valueArray;
 	}
+	
+	public static WsvTable parseDocumentAsTable(String content) {
+		return parseDocumentAsTable(content, null);
+	}
+	
+	public static WsvTable parseDocumentAsTable(String content, WsvColumnSelection selection) {
+		WsvTokenReader reader = new WsvTokenReader(content);
+		WsvTable table = new WsvTable(content);
+		int width = selection != null ? selection.getWidth() : 0;
+		int[] slotStarts = new int[width];
+		int[] slotEnds = new int[width];
+		byte[] slotTypes = new byte[width];
+		
+		do {
+			if (selection == null) {
+				readTableRow(reader, table);
+			} else {
+				readTableRow(reader, table, selection, slotStarts, slotEnds, slotTypes);
+			}
+		} while (reader.getTokenType() != WsvTokenType.EOF);
+		
+		return table;
+	}
+	
+	private static byte getTableCellType(WsvTokenReader reader) {
+		if (reader.getTokenType() == WsvTokenType.NULL_VALUE) {
+			return WsvTable.NULL;
+		} else if (reader.isQuoted()) {
+			return WsvTable.STRING;
+		} else {
+			return WsvTable.VALUE;
+		}
+	}
+	
+	private static void readTableRow(WsvTokenReader reader, WsvTable table) {
+		while (reader.next().isValue()) {
+			table.addCell(getTableCellType(reader), reader.getTokenStart(), reader.getTokenEnd());
+		}
+		reader.skipComment();
+		table.endRow();
+	}
+	
+	private static void readTableRow(WsvTokenReader reader, WsvTable table, 
+			WsvColumnSelection selection, int[] slotStarts, int[] slotEnds, byte[] slotTypes) {
+		Arrays.fill(slotTypes, WsvTable.NULL);
+		int columnIndex = 0;
+		while (reader.next().isValue()) {
+			int slot = selection.getSlot(columnIndex);
+			if (slot >= 0) {
+				slotStarts[slot] = reader.getTokenStart();
+				slotEnds[slot] = reader.getTokenEnd();
+				slotTypes[slot] = getTableCellType(reader);
+			}
+			columnIndex++;
+		}
+		reader.skipComment();
+		if (columnIndex > 0) {
+			for (int i=0; i<slotTypes.length; i++) {
+				table.addCell(slotTypes[i], slotStarts[i], slotEnds[i]);
+			}
+		}
+		table.endRow();
+	}
 }
 
-class WsvSerializer {
-	private static boolean containsSpecialChar(String value) {
-		for (int i=0; i<value.length(); i++) {
-			char c = value.charAt(i);
-			if (c == '\n' || WsvChar.isWhitespace(c) || c == '"'
-					 || c == '#') {
-				return true;
+enum WsvTokenType {
+	VALUE,
+	NULL_VALUE,
+	COMMENT,
+	LINE_END,
+	EOF;
+	
+	public boolean isValue() {
+		return this == VALUE || this == NULL_VALUE;
+	}
+}
+
+class WsvTokenReader {
+	private static final String UNEXPECTED_PARSER_ERROR = "Unexpected parser error";
+	
+	private final WsvCharIterator iterator;
+	private final String text;
+	private final StringBuilder stringBuffer = new StringBuilder();
+	private final TokenView tokenView = new TokenView();
+	private WsvTokenType tokenType;
+	private int tokenStart;
+	private int tokenEnd;
+	private int whitespaceStart;
+	private int whitespaceEnd;
+	private boolean isQuoted;
+	
+	public WsvTokenReader(String text) {
+		this(new WsvCharIterator(text));
+	}
+	
+	public WsvTokenReader(String text, WsvValueCache valueCache) {
+		this(new WsvCharIterator(text, valueCache));
+	}
+	
+	WsvTokenReader(WsvCharIterator iterator) {
+		this.iterator = iterator;
+		this.text = iterator.getText();
+	}
+	
+	public WsvTokenType next() {
+		if (tokenType == WsvTokenType.EOF) {
+			return tokenType;
+		}
+		skipLineEnd();
+		boolean afterValue = tokenType != null && tokenType.isValue();
+		
+		whitespaceStart = iterator.index;
+		iterator.skipWhitespace();
+		whitespaceEnd = iterator.index;
+		
+		tokenStart = iterator.index;
+		isQuoted = false;
+		if (iterator.isEndOfText()) {
+			tokenType = WsvTokenType.EOF;
+		} else if (iterator.isChar('\n')) {
+			tokenType = WsvTokenType.LINE_END;
+		} else if (iterator.tryReadChar('#')) {
+			tokenStart = iterator.index;
+			iterator.skipCommentText();
+			tokenType = WsvTokenType.COMMENT;
+		} else if (afterValue && whitespaceStart == whitespaceEnd) {
+			throw iterator.getException(UNEXPECTED_PARSER_ERROR);
+		} else if (iterator.tryReadChar('"')) {
+			iterator.skipString();
+			isQuoted = true;
+			tokenType = WsvTokenType.VALUE;
+		} else {
+			iterator.skipValue();
+			if (iterator.index - tokenStart == 1 && text.charAt(tokenStart) == '-') {
+				tokenType = WsvTokenType.NULL_VALUE;
+			} else {
+				tokenType = WsvTokenType.VALUE;
 			}
 		}
-		return false;
+		tokenEnd = iterator.index;
+		return tokenType;
+	}
+	
+	void skipLineEnd() {
+		if (tokenType == WsvTokenType.LINE_END) {
+			iterator.tryReadChar('\n');
+			tokenType = null;
+		}
+	}
+	
+	void skipComment() {
+		if (tokenType == WsvTokenType.COMMENT) {
+			next();
+		}
+	}
+	
+	public WsvTokenType getTokenType() {
+		return tokenType;
+	}
+	
+	public String getText() {
+		return text;
+	}
+	
+	public int getTokenStart() {
+		return tokenStart;
+	}
+	
+	public int getTokenEnd() {
+		return tokenEnd;
+	}
+	
+	public boolean isQuoted() {
+		return isQuoted;
+	}
+	
+	public boolean hasWhitespace() {
+		return whitespaceEnd > whitespaceStart;
+	}
+	
+	public int getWhitespaceStart() {
+		return whitespaceStart;
+	}
+	
+	public int getWhitespaceEnd() {
+		return whitespaceEnd;
+	}
+	
+	public String getWhitespace() {
+		if (whitespaceEnd == whitespaceStart) {
+			return null;
+		}
+		return text.substring(whitespaceStart, whitespaceEnd);
+	}
+	
+	public CharSequence getCharSequence() {
+		if (tokenType == WsvTokenType.VALUE && isQuoted) {
+			stringBuffer.setLength(0);
+			WsvString.appendUnescaped(stringBuffer, text, tokenStart, tokenEnd);
+			return stringBuffer;
+		} else if (tokenType == WsvTokenType.VALUE || tokenType == WsvTokenType.COMMENT) {
+			tokenView.set(text, tokenStart, tokenEnd);
+			return tokenView;
+		}
+		return null;
+	}
+	
+	public String getString() {
+		if (tokenType == WsvTokenType.VALUE) {
+			if (isQuoted) {
+				stringBuffer.setLength(0);
+				WsvString.appendUnescaped(stringBuffer, text, tokenStart, tokenEnd);
+				return iterator.createString(stringBuffer, 0, stringBuffer.length());
+			}
+			return iterator.createString(text, tokenStart, tokenEnd);
+		} else if (tokenType == WsvTokenType.COMMENT) {
+			return text.substring(tokenStart, tokenEnd);
+		}
+		return null;
+	}
+	
+	public WsvParserException getException(String message) {
+		return iterator.getException(message);
+	}
+	
+	private static class TokenView implements CharSequence {
+		private String text;
+		private int startIndex;
+		private int endIndex;
+		
+		void set(String text, int startIndex, int endIndex) {
+			this.text = text;
+			this.startIndex = startIndex;
+			this.endIndex = endIndex;
+		}
+		
+		@Override
+		public int length() {
+			return endIndex - startIndex;
+		}
+		
+		@Override
+		public char charAt(int index) {
+			if (index < 0 || index >= endIndex - startIndex) {
+				throw new IndexOutOfBoundsException("Index "+index+" out of range");
+			}
+			return text.charAt(startIndex + index);
+		}
+		
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			if (start < 0 || start > end || end > endIndex - startIndex) {
+				throw new IndexOutOfBoundsException("Invalid range "+start+" to "+end);
+			}
+			return text.substring(startIndex + start, startIndex + end);
+		}
+		
+		@Override
+		public String toString() {
+			return text.substring(startIndex, endIndex);
+		}
 	}
+}
 
+class WsvSerializer {
 	public static void serializeValue(StringBuilder sb, String value) {
 		if (value==null) {
 			sb.append('-');
@@ -488,21 +1338,15 @@ class WsvSerializer {
 			sb.append("\"\"");
 		} else if (value.equals("-")) {
 			sb.append("\"-\"");
-		} else if (containsSpecialChar(value)) {
-			sb.append('"');
-			for (int i=0; i<value.length(); i++) {
-				char c = value.charAt(i);
-				if (c == '\n') {
-					sb.append("\"/\"");
-				} else if(c == '"') {
-					sb.append("\"\"");
-				} else {
-					sb.append(c);
-				}
-			}
-			sb.append('"');
 		} else {
-			sb.append(value);
+			int specialIndex = WsvString.indexOfSpecialChar(value);
+			if (specialIndex < 0) {
+				sb.append(value);
+			} else {
+				sb.append('"');
+				WsvString.appendEscaped(sb, value, specialIndex);
+				sb.append('"');
+			}
 		}
 	}
 	
@@ -650,23 +1494,145 @@ class WsvSerializer {
 		}
 		return sb.toString();
 	}
+	
+	static final int FLUSH_THRESHOLD = 8192;
+	
+	static void flush(StringBuilder sb, Appendable out, boolean force) throws IOException {
+		if (out != null && (force || sb.length() >= FLUSH_THRESHOLD)) {
+			out.append(sb);
+			sb.setLength(0);
+		}
+	}
+	
+	public static void serializeDocument(WsvDocument document, Appendable out) throws IOException {
+		StringBuilder sb = new StringBuilder(FLUSH_THRESHOLD + 256);
+		boolean isFirstLine = true;
+		for (WsvLine line : document.Lines) {
+			if (!isFirstLine) {
+				sb.append('\n');
+			} else {
+				isFirstLine = false;
+			}
+			serializeLine(sb, line);
+			flush(sb, out, false);
+		}
+		flush(sb, out, true);
+	}
+	
+	public static void serializeDocumentNonPreserving(WsvDocument document, Appendable out) throws IOException {
+		StringBuilder sb = new StringBuilder(FLUSH_THRESHOLD + 256);
+		boolean isFirstLine = true;
+		for (WsvLine line : document.Lines) {
+			if (!isFirstLine) {
+				sb.append('\n');
+			} else {
+				isFirstLine = false;
+			}
+			serializeLine(sb, line.Values);
+			flush(sb, out, false);
+		}
+		flush(sb, out, true);
+	}
+	
+	public static void serializeDocument(String[][] lines, Appendable out) throws IOException {
+		StringBuilder sb = new StringBuilder(FLUSH_THRESHOLD + 256);
+		boolean isFirstLine = true;
+		for (String[] line : lines) {
+			if (!isFirstLine) {
+				sb.append('\n');
+			} else {
+				isFirstLine = false;
+			}
+			serializeLine(sb, line);
+			flush(sb, out, false);
+		}
+		flush(sb, out, true);
+	}
 }
 
 class WsvStreamReader implements AutoCloseable {
 	public final ReliableTxtEncoding Encoding;
 	ReliableTxtStreamReader reader;
+	private int lineIndex;
+	private long codePointIndex;
 	
 	public WsvStreamReader(String filePath) throws IOException {
-		reader = new ReliableTxtStreamReader(filePath);
+		this(new ReliableTxtStreamReader(filePath));
+	}
+	
+	public WsvStreamReader(InputStream inputStream) throws IOException {
+		this(new ReliableTxtStreamReader(inputStream));
+	}
+	
+	public WsvStreamReader(ReadableByteChannel channel) throws IOException {
+		this(new ReliableTxtStreamReader(channel));
+	}
+	
+	WsvStreamReader(ReliableTxtStreamReader reader) {
+		this.reader = reader;
 		Encoding = reader.Encoding;
 	}
 	
+	SeekableByteChannel getSeekableChannel() {
+		return reader.getSeekableChannel();
+	}
+	
+	long getContentStart() {
+		return reader.getContentStart();
+	}
+	
 	public WsvLine readLine() throws IOException {
+		return readLine(true);
+	}
+	
+	public WsvLine readLine(boolean preserveWhitespaceAndComment) throws IOException {
 		String str = reader.readLine();
 		if (str == null) {
 			return null;
 		}
-		return WsvLine.parse(str);
+		return parseLine(str, preserveWhitespaceAndComment);
+	}
+	
+	public WsvLine readLine(WsvRowFilter filter) throws IOException {
+		Objects.requireNonNull(filter);
+		while (true) {
+			String str = reader.readLine();
+			if (str == null) {
+				return null;
+			}
+			boolean accepted;
+			try {
+				accepted = WsvParser.acceptsLine(str, filter);
+			} catch (WsvParserException exception) {
+				throw exception.withOffset(codePointIndex, lineIndex);
+			}
+			if (accepted) {
+				return parseLine(str, true);
+			}
+			advance(str);
+		}
+	}
+	
+	// Lines are parsed one at a time, so positions in errors are moved to
+	// where the line starts in the document.
+	private WsvLine parseLine(String str, boolean preserveWhitespaceAndComment) {
+		WsvLine line;
+		try {
+			line = WsvLine.parse(str, preserveWhitespaceAndComment);
+		} catch (WsvParserException exception) {
+			throw exception.withOffset(codePointIndex, lineIndex);
+		}
+		advance(str);
+		return line;
+	}
+	
+	private void advance(String str) {
+		codePointIndex += str.codePointCount(0, str.length()) + 1;
+		lineIndex++;
+	}
+	
+	void skipRemaining() throws IOException {
+		reader.skipRemaining();
 	}
 
 	@Override
@@ -741,53 +1707,47 @@ class WsvBasedFormat {
 }
 
 class WsvCharIterator extends ReliableTxtCharIterator {
+	private final WsvValueCache valueCache;
+	
 	public WsvCharIterator(String text) {
+		this(text, null);
+	}
+	
+	public WsvCharIterator(String text, WsvValueCache valueCache) {
 		super(text);
+		this.valueCache = valueCache;
+	}
+	
+	public WsvCharIterator(String text, int startIndex, int endIndex) {
+		super(text, startIndex, endIndex);
+		this.valueCache = null;
 	}
 	
 	public boolean isWhitespace() {
 		if (isEndOfText()) return false;
-		return WsvChar.isWhitespace(chars[index]);
+		return WsvChar.isWhitespace(text.charAt(index));
 	}
 	
 	public String readCommentText() {
 		int startIndex = index;
-		while (true) {
-			if (isEndOfText()) break;
-			if (chars[index] == '\n') break;
-			index++;
-		}
-		return new String(chars,startIndex,index-startIndex);
+		skipCommentText();
+		return text.substring(startIndex, index);
 	}
 	
 	public void skipCommentText() {
-		while (true) {
-			if (isEndOfText()) break;
-			if (chars[index] == '\n') break;
-			index++;
-		}
+		int lineFeedIndex = text.indexOf('\n', index);
+		index = lineFeedIndex < 0 || lineFeedIndex > endIndex ? endIndex : lineFeedIndex;
 	}
 
 	public String readWhitespaceOrNull() {
 		int startIndex = index;
-		while (true) {
-			if (isEndOfText()) break;
-			int c = chars[index];
-			if (c == '\n') break;
-			if (!WsvChar.isWhitespace(c)) break;
-			index++;
-		}
-		if (index == startIndex) return null;
-		return new String(chars,startIndex,index-startIndex);
+		if (!skipWhitespace()) return null;
+		return text.substring(startIndex, index);
 	}
 	
 	public boolean skipWhitespace() {
 		int startIndex = index;
-		while (true) {
-			if (isEndOfText()) break;
-			int c = chars[index];
-			if (c == '\n') break;
-			if (!WsvChar.isWhitespace(c)) break;
+		while (index < endIndex && WsvChar.isWhitespace(text.charAt(index))) {
 			index++;
 		}
 		return index > startIndex;
@@ -799,7 +1759,7 @@ class WsvCharIterator extends ReliableTxtCharIterator {
 			if (isEndOfText() || isChar('\n')) {
 				throw getException("String not closed");
 			}
-			int c = chars[index];
+			char c = text.charAt(index);
 			if (c == '"') {
 				index++;
 				if (tryReadChar('"')) {
@@ -815,36 +1775,749 @@ class WsvCharIterator extends ReliableTxtCharIterator {
 					throw getException("Invalid character after string");
 				}
 			} else {
-				sb.appendCodePoint(c);
-				index++;
+				int runStart = index;
+				while (index < endIndex) {
+					c = text.charAt(index);
+					if (c == '"' || c == '\n') break;
+					index++;
+				}
+				sb.append(text, runStart, index);
 			}
 		}
-		return sb.toString();
+		return createString(sb, 0, sb.length());
 	}
 
-	public String readValue() {
-		int startIndex = index;
+	public void skipString() {
 		while (true) {
-			if (isEndOfText()) {
-				break;
-			}
-			int c = chars[index];
-			if (WsvChar.isWhitespace(c) || c == '\n' || c == '#') {
-				break;
+			if (isEndOfText() || isChar('\n')) {
+				throw getException("String not closed");
 			}
-			if (c == '\"') {
-				throw getException("Invalid double quote after value");
+			char c = text.charAt(index);
+			if (c == '"') {
+				index++;
+				if (tryReadChar('"')) {
+					continue;
+				} else if(tryReadChar('/')) {
+					if (!tryReadChar('"')) {
+						throw getException("Invalid string line break");
+					}
+				} else if (isWhitespace() || isChar('\n') || isChar('#') || isEndOfText() ) {
+					break;
+				} else {
+					throw getException("Invalid character after string");
+				}
+			} else {
+				index++;
+				while (index < endIndex) {
+					c = text.charAt(index);
+					if (c == '"' || c == '\n') break;
+					index++;
+				}
+			}
+		}
+	}
+
+	String createString(CharSequence chars, int startIndex, int endIndex) {
+		if (valueCache != null) {
+			return valueCache.get(chars, startIndex, endIndex);
+		}
+		return chars.subSequence(startIndex, endIndex).toString();
+	}
+
+	public String readValue() {
+		int startIndex = index;
+		skipValue();
+		return createString(text, startIndex, index);
+	}
+	
+	public void skipValue() {
+		int startIndex = index;
+		while (true) {
+			if (isEndOfText()) {
+				break;
+			}
+			char c = text.charAt(index);
+			if (WsvChar.isSpecial(c)) {
+				if (c == '"') {
+					throw getException("Invalid double quote after value");
+				}
+				break;
 			}
 			index++;
 		}
 		if (index == startIndex) {
 			throw getException("Invalid value");
 		}
-		return new String(chars,startIndex,index-startIndex);
+	}
+	
+	public void skipLineValues() {
+		skipWhitespace();
+		while (!isChar('\n') && !isEndOfText()) {
+			if (isChar('#')) {
+				break;
+			} else if (tryReadChar('"')) {
+				skipString();
+			} else {
+				skipValue();
+			}
+			if (!skipWhitespace()) {
+				break;
+			}
+		}
+		if (tryReadChar('#')) {
+			skipCommentText();
+		}
+	}
+	
+	public boolean skipToColumn(int columnIndex) {
+		skipWhitespace();
+		for (int i=0; ; i++) {
+			if (isChar('\n') || isChar('#') || isEndOfText()) {
+				return false;
+			} else if (i == columnIndex) {
+				return true;
+			} else if (tryReadChar('"')) {
+				skipString();
+			} else {
+				skipValue();
+			}
+			if (!skipWhitespace()) {
+				return false;
+			}
+		}
+	}
+	
+	public boolean matchCell(String value, boolean prefixOnly) {
+		if (tryReadChar('"')) {
+			if (value == null) {
+				return false;
+			}
+			int matchCount = 0;
+			while (index < endIndex) {
+				if (prefixOnly && matchCount == value.length()) {
+					return true;
+				}
+				char c = text.charAt(index);
+				if (c == '\n') {
+					return false;
+				} else if (c == '"') {
+					if (index+1 < endIndex && text.charAt(index+1) == '"') {
+						index += 2;
+					} else if (index+2 < endIndex && text.charAt(index+1) == '/' && text.charAt(index+2) == '"') {
+						c = '\n';
+						index += 3;
+					} else {
+						index++;
+						return matchCount == value.length();
+					}
+				} else {
+					index++;
+				}
+				if (matchCount == value.length() || value.charAt(matchCount) != c) {
+					return false;
+				}
+				matchCount++;
+			}
+			return false;
+		} else {
+			int startIndex = index;
+			skipValue();
+			int length = index - startIndex;
+			boolean isNull = length == 1 && text.charAt(startIndex) == '-';
+			if (value == null || isNull) {
+				return value == null && isNull;
+			} else if (prefixOnly) {
+				return length >= value.length() && text.startsWith(value, startIndex);
+			} else {
+				return length == value.length() && text.startsWith(value, startIndex);
+			}
+		}
 	}
 	
 	public WsvParserException getException(String message) {
-		int[] lineInfo = getLineInfo();
-		return new WsvParserException(index, lineInfo[0], lineInfo[1], message);
+		return new WsvParserException(getCodePointIndex(), getLineIndex(), getLinePosition(), message);
+	}
+}
+
+class WsvUtf8Parser {
+	private static final String UNEXPECTED_PARSER_ERROR = "Unexpected parser error";
+	private static final String INVALID_DATA = "The UTF_8 encoded text contains invalid data.";
+	
+	private final byte[] bytes;
+	private final ByteBuffer words;
+	private final int start;
+	private final int end;
+	private int index;
+	private int sequenceLength;
+	private byte[] stringBuffer = new byte[64];
+	
+	private final int chunkStart;
+	private int startLineIndex;
+	private int lineCount;
+	private int lineStart;
+	
+	private WsvUtf8Parser(byte[] bytes, int start, int chunkStart, int chunkEnd) {
+		this.bytes = bytes;
+		words = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+		this.start = start;
+		this.chunkStart = chunkStart;
+		end = chunkEnd;
+		index = chunkStart;
+		
+		startLineIndex = chunkStart == start ? 0 : -1;
+		lineStart = chunkStart;
+		while (lineStart > start && bytes[lineStart-1] != '\n') {
+			lineStart--;
+		}
+	}
+	
+	public static String[][] parseDocumentAsJaggedArray(byte[] bytes, int offset, int length) {
+		Objects.requireNonNull(bytes);
+		if (offset < 0 || length < 0 || length > bytes.length - offset) {
+			throw new IndexOutOfBoundsException();
+		}
+		
+		ArrayList<String[]> lines = new WsvUtf8Parser(bytes, offset, offset, offset+length).parseLinesAsArrays();
+		
+		String[][] linesArray = new String[lines.size()][];
+		lines.toArray(linesArray);
+		return linesArray;
+	}
+	
+	public static String[][] parseDocumentAsJaggedArrayParallel(byte[] bytes, int offset, int length) {
+		Objects.requireNonNull(bytes);
+		if (offset < 0 || length < 0 || length > bytes.length - offset) {
+			throw new IndexOutOfBoundsException();
+		}
+		
+		List<String[]> lines = WsvChunkTask.parseAll(length,
+				fromIndex -> {
+					for (int i=offset+fromIndex; i<offset+length; i++) {
+						if (bytes[i] == '\n') {
+							return i-offset;
+						}
+					}
+					return -1;
+				},
+				(startIndex, endIndex) -> new WsvUtf8Parser(bytes, offset, offset+startIndex, offset+endIndex).parseLinesAsArrays());
+		
+		String[][] linesArray = new String[lines.size()][];
+		lines.toArray(linesArray);
+		return linesArray;
+	}
+	
+	private ArrayList<String[]> parseLinesAsArrays() {
+		ArrayList<String> values = new ArrayList<>();
+		ArrayList<String[]> lines = new ArrayList<>();
+		
+		try {
+			while (true) {
+				String[] newLine = parseLineAsArray(values);
+				lines.add(newLine);
+				
+				if (isEndOfText()) {
+					break;
+				} else if (bytes[index] != '\n') {
+					throw getException(UNEXPECTED_PARSER_ERROR);
+				}
+				index++;
+				lineCount++;
+				lineStart = index;
+			}
+		} catch (WsvParserException exception) {
+			validateData();
+			throw exception;
+		}
+		return lines;
+	}
+	
+	public static WsvTable parseDocumentAsTable(byte[] bytes, int offset, int length, WsvColumnSelection selection, boolean parallel) {
+		Objects.requireNonNull(bytes);
+		if (offset < 0 || length < 0 || length > bytes.length - offset) {
+			throw new IndexOutOfBoundsException();
+		}
+		
+		if (!parallel) {
+			return new WsvUtf8Parser(bytes, offset, offset, offset+length).parseLinesAsTable(selection);
+		}
+		List<WsvTable> chunkTables = WsvChunkTask.parseAll(length,
+				fromIndex -> {
+					for (int i=offset+fromIndex; i<offset+length; i++) {
+						if (bytes[i] == '\n') {
+							return i-offset;
+						}
+					}
+					return -1;
+				},
+				(startIndex, endIndex) -> {
+					ArrayList<WsvTable> result = new ArrayList<>(1);
+					result.add(new WsvUtf8Parser(bytes, offset, offset+startIndex, offset+endIndex).parseLinesAsTable(selection));
+					return result;
+				});
+		
+		WsvTable table = chunkTables.get(0);
+		for (int i=1; i<chunkTables.size(); i++) {
+			table.append(chunkTables.get(i));
+		}
+		return table;
+	}
+	
+	private WsvTable parseLinesAsTable(WsvColumnSelection selection) {
+		WsvTable table = new WsvTable(bytes);
+		int width = selection != null ? selection.getWidth() : 0;
+		int[] slotStarts = new int[width];
+		int[] slotEnds = new int[width];
+		byte[] slotTypes = new byte[width];
+		
+		try {
+			while (true) {
+				parseTableRow(table, selection, slotStarts, slotEnds, slotTypes);
+				
+				if (isEndOfText()) {
+					break;
+				} else if (bytes[index] != '\n') {
+					throw getException(UNEXPECTED_PARSER_ERROR);
+				}
+				index++;
+				lineCount++;
+				lineStart = index;
+			}
+		} catch (WsvParserException exception) {
+			validateData();
+			throw exception;
+		}
+		return table;
+	}
+	
+	// The bytes are decoded while tokenizing, so a parser error can come before
+	// invalid data further on. Decoding the whole text first always reported the
+	// invalid data, which is checked here before the parser error is thrown.
+	private void validateData() {
+		int i = chunkStart;
+		while (i < end) {
+			if (bytes[i] >= 0) {
+				i++;
+			} else {
+				decodeCodePoint(i);
+				i += sequenceLength;
+			}
+		}
+	}
+	
+	private void parseTableRow(WsvTable table, WsvColumnSelection selection,
+			int[] slotStarts, int[] slotEnds, byte[] slotTypes) {
+		Arrays.fill(slotTypes, WsvTable.NULL);
+		int columnIndex = 0;
+		skipWhitespace();
+		
+		while (!isEndOfText() && bytes[index] != '\n') {
+			int valueStart = index;
+			byte type;
+			if (bytes[index] == '#') {
+				break;
+			} else if (bytes[index] == '"') {
+				index++;
+				skipString();
+				type = WsvTable.STRING;
+			} else {
+				skipValue();
+				type = index - valueStart == 1 && bytes[valueStart] == '-' ? WsvTable.NULL : WsvTable.VALUE;
+			}
+			if (selection == null) {
+				table.addCell(type, valueStart, index);
+			} else {
+				int slot = selection.getSlot(columnIndex);
+				if (slot >= 0) {
+					slotStarts[slot] = valueStart;
+					slotEnds[slot] = index;
+					slotTypes[slot] = type;
+				}
+			}
+			columnIndex++;
+			
+			if (!skipWhitespace()) {
+				break;
+			}
+		}
+		
+		if (!isEndOfText() && bytes[index] == '#') {
+			skipCommentText();
+		}
+		if (selection != null && columnIndex > 0) {
+			for (int i=0; i<slotTypes.length; i++) {
+				table.addCell(slotTypes[i], slotStarts[i], slotEnds[i]);
+			}
+		}
+		table.endRow();
+	}
+	
+	public static WsvDocument parseDocumentNonPreserving(byte[] bytes, int offset, int length) {
+		WsvDocument document = new WsvDocument();
+		for (String[] lineValues : parseDocumentAsJaggedArray(bytes, offset, length)) {
+			document.addLine(new WsvLine(lineValues));
+		}
+		return document;
+	}
+	
+	private boolean isEndOfText() {
+		return index >= end;
+	}
+	
+	private String[] parseLineAsArray(ArrayList<String> values) {
+		values.clear();
+		skipWhitespace();
+		
+		while (!isEndOfText() && bytes[index] != '\n') {
+			byte b = bytes[index];
+			String value;
+			if (b == '#') {
+				break;
+			} else if (b == '"') {
+				index++;
+				value = readString();
+			} else {
+				value = readValue();
+			}
+			values.add(value);
+			
+			if (!skipWhitespace()) {
+				break;
+			}
+		}
+		
+		if (!isEndOfText() && bytes[index] == '#') {
+			skipCommentText();
+		}
+		
+		String[] valueArray = new String[values.size()];
+		values.toArray(valueArray);
+		return valueArray;
+	}
+	
+	private int decodeCodePoint(int i) {
+		int b0 = bytes[i] & 0xFF;
+		int minSecond = 0x80;
+		int maxSecond = 0xBF;
+		int codePoint;
+		if (b0 >= 0xC2 && b0 <= 0xDF) {
+			sequenceLength = 2;
+			codePoint = b0 & 0x1F;
+		} else if (b0 >= 0xE0 && b0 <= 0xEF) {
+			sequenceLength = 3;
+			codePoint = b0 & 0x0F;
+			if (b0 == 0xE0) { minSecond = 0xA0; }
+			else if (b0 == 0xED) { maxSecond = 0x9F; }
+		} else if (b0 >= 0xF0 && b0 <= 0xF4) {
+			sequenceLength = 4;
+			codePoint = b0 & 0x07;
+			if (b0 == 0xF0) { minSecond = 0x90; }
+			else if (b0 == 0xF4) { maxSecond = 0x8F; }
+		} else {
+			throw new ReliableTxtException(INVALID_DATA);
+		}
+		if (i + sequenceLength > end) {
+			throw new ReliableTxtException(INVALID_DATA);
+		}
+		for (int j=1; j<sequenceLength; j++) {
+			int b = bytes[i+j] & 0xFF;
+			if (j == 1 ? (b < minSecond || b > maxSecond) : (b < 0x80 || b > 0xBF)) {
+				throw new ReliableTxtException(INVALID_DATA);
+			}
+			codePoint = (codePoint << 6) | (b & 0x3F);
+		}
+		return codePoint;
+	}
+	
+	private boolean skipWhitespace() {
+		int startIndex = index;
+		while (!isEndOfText()) {
+			byte b = bytes[index];
+			if (b >= 0) {
+				if (!WsvChar.isWhitespace(b)) break;
+				index++;
+			} else {
+				if (!WsvChar.isWhitespace(decodeCodePoint(index))) break;
+				index += sequenceLength;
+			}
+		}
+		return index > startIndex;
+	}
+	
+	private void skipCommentText() {
+		while (!isEndOfText()) {
+			index = WsvByteScanner.skipCommentBytes(words, index, end);
+			if (isEndOfText()) break;
+			byte b = bytes[index];
+			if (b >= 0) {
+				if (b == '\n') break;
+				index++;
+			} else {
+				decodeCodePoint(index);
+				index += sequenceLength;
+			}
+		}
+	}
+	
+	private String readValue() {
+		int startIndex = index;
+		skipValue();
+		int length = index - startIndex;
+		if (length == 1 && bytes[startIndex] == '-') {
+			return null;
+		}
+		return new String(bytes, startIndex, length, StandardCharsets.UTF_8);
+	}
+	
+	private void skipValue() {
+		int startIndex = index;
+		while (!isEndOfText()) {
+			index = WsvByteScanner.skipValueBytes(words, index, end);
+			if (isEndOfText()) break;
+			byte b = bytes[index];
+			if (b >= 0) {
+				if (WsvChar.isSpecial(b)) {
+					if (b == '"') {
+						throw getException("Invalid double quote after value");
+					}
+					break;
+				}
+				index++;
+			} else {
+				if (WsvChar.isWhitespace(decodeCodePoint(index))) break;
+				index += sequenceLength;
+			}
+		}
+		if (index == startIndex) {
+			throw getException("Invalid value");
+		}
+	}
+	
+	private String readString() {
+		int length = scanString(true);
+		return new String(stringBuffer, 0, length, StandardCharsets.UTF_8);
+	}
+	
+	private void skipString() {
+		scanString(false);
+	}
+	
+	private int scanString(boolean unescape) {
+		int length = 0;
+		while (true) {
+			if (isEndOfText() || bytes[index] == '\n') {
+				throw getException("String not closed");
+			}
+			byte b = bytes[index];
+			int runStart = index;
+			if (b == '"') {
+				index++;
+				if (!isEndOfText() && bytes[index] == '"') {
+					index++;
+					if (unescape) {
+						length = appendToStringBuffer(length, (byte)'"');
+					}
+				} else if (!isEndOfText() && bytes[index] == '/') {
+					index++;
+					if (isEndOfText() || bytes[index] != '"') {
+						throw getException("Invalid string line break");
+					}
+					index++;
+					if (unescape) {
+						length = appendToStringBuffer(length, (byte)'\n');
+					}
+				} else if (isEndOfText() || bytes[index] == '\n' || bytes[index] == '#') {
+					break;
+				} else if (bytes[index] >= 0 ? WsvChar.isWhitespace(bytes[index]) : WsvChar.isWhitespace(decodeCodePoint(index))) {
+					break;
+				} else {
+					throw getException("Invalid character after string");
+				}
+			} else {
+				while (!isEndOfText()) {
+					index = WsvByteScanner.skipStringBytes(words, index, end);
+					if (isEndOfText()) break;
+					b = bytes[index];
+					if (b >= 0) {
+						if (b == '"' || b == '\n') break;
+						index++;
+					} else {
+						decodeCodePoint(index);
+						index += sequenceLength;
+					}
+				}
+				if (unescape) {
+					length = appendToStringBuffer(length, runStart, index - runStart);
+				}
+			}
+		}
+		return length;
+	}
+	
+	private int appendToStringBuffer(int length, byte b) {
+		if (length == stringBuffer.length) {
+			stringBuffer = Arrays.copyOf(stringBuffer, stringBuffer.length * 2);
+		}
+		stringBuffer[length] = b;
+		return length + 1;
+	}
+	
+	private int appendToStringBuffer(int length, int offset, int count) {
+		if (length + count > stringBuffer.length) {
+			stringBuffer = Arrays.copyOf(stringBuffer, Math.max(stringBuffer.length * 2, length + count));
+		}
+		System.arraycopy(bytes, offset, stringBuffer, length, count);
+		return length + count;
+	}
+	
+	private WsvParserException getException(String message) {
+		if (startLineIndex < 0) {
+			startLineIndex = 0;
+			for (int i=start; i<chunkStart; i++) {
+				if (bytes[i] == '\n') {
+					startLineIndex++;
+				}
+			}
+		}
+		int linePosition = countCodePoints(lineStart, index);
+		int codePointIndex = countCodePoints(start, lineStart) + linePosition;
+		return new WsvParserException(codePointIndex, startLineIndex + lineCount, linePosition, message);
+	}
+	
+	private int countCodePoints(int fromIndex, int toIndex) {
+		int count = 0;
+		for (int i=fromIndex; i<toIndex; i++) {
+			if ((bytes[i] & 0xC0) != 0x80) {
+				count++;
+			}
+		}
+		return count;
+	}
+}
+
+class WsvByteScanner {
+	private static final long ONES = 0x0101010101010101L;
+	private static final long HIGH_BITS = 0x8080808080808080L;
+	
+	private static long hasByte(long word, int value) {
+		long x = word ^ (ONES * value);
+		return (x - ONES) & ~x & HIGH_BITS;
+	}
+	
+	private static long hasByteBelow(long asciiWord, int value) {
+		return ~(asciiWord + ONES * (0x80 - value)) & HIGH_BITS;
+	}
+	
+	static int skipValueBytes(ByteBuffer words, int index, int end) {
+		while (index + 8 <= end) {
+			long word = words.getLong(index);
+			if ((word & HIGH_BITS) != 0
+					|| hasByte(word, ' ') != 0
+					|| hasByte(word, '"') != 0
+					|| hasByte(word, '#') != 0
+					|| (hasByteBelow(word, 0x0E) & ~hasByteBelow(word, 0x09)) != 0) {
+				break;
+			}
+			index += 8;
+		}
+		return index;
+	}
+	
+	static int skipStringBytes(ByteBuffer words, int index, int end) {
+		while (index + 8 <= end) {
+			long word = words.getLong(index);
+			if ((word & HIGH_BITS) != 0
+					|| hasByte(word, '"') != 0
+					|| hasByte(word, '\n') != 0) {
+				break;
+			}
+			index += 8;
+		}
+		return index;
+	}
+	
+	static int skipCommentBytes(ByteBuffer words, int index, int end) {
+		while (index + 8 <= end) {
+			long word = words.getLong(index);
+			if ((word & HIGH_BITS) != 0
+					|| hasByte(word, '\n') != 0) {
+				break;
+			}
+			index += 8;
+		}
+		return index;
+	}
+}
+
+class WsvChunkTask<T> extends RecursiveAction {
+	private static final long serialVersionUID = 1L;
+	
+	static final int DEFAULT_CHUNK_SIZE = 1048576;
+	
+	private final int startIndex;
+	private final int endIndex;
+	private final BiFunction<Integer, Integer, ArrayList<T>> parser;
+	private ArrayList<T> lines;
+	private RuntimeException exception;
+	
+	private WsvChunkTask(int startIndex, int endIndex, BiFunction<Integer, Integer, ArrayList<T>> parser) {
+		this.startIndex = startIndex;
+		this.endIndex = endIndex;
+		this.parser = parser;
+	}
+	
+	@Override
+	protected void compute() {
+		try {
+			lines = parser.apply(startIndex, endIndex);
+		} catch (RuntimeException e) {
+			exception = e;
+		}
+	}
+	
+	static <T> List<T> parseAll(int length, IntUnaryOperator lineFeedFinder,
+			BiFunction<Integer, Integer, ArrayList<T>> parser) {
+		return parseAll(length, DEFAULT_CHUNK_SIZE, lineFeedFinder, parser);
+	}
+	
+	static <T> List<T> parseAll(int length, int chunkSize, IntUnaryOperator lineFeedFinder,
+			BiFunction<Integer, Integer, ArrayList<T>> parser) {
+		if (chunkSize < 1) { throw new IllegalArgumentException("Chunk size must be at least 1"); }
+		ArrayList<WsvChunkTask<T>> tasks = new ArrayList<>();
+		int startIndex = 0;
+		while (true) {
+			int endIndex = -1;
+			if (length - startIndex > chunkSize) {
+				endIndex = lineFeedFinder.applyAsInt(startIndex + chunkSize);
+			}
+			if (endIndex < 0) {
+				tasks.add(new WsvChunkTask<>(startIndex, length, parser));
+				break;
+			}
+			tasks.add(new WsvChunkTask<>(startIndex, endIndex, parser));
+			startIndex = endIndex + 1;
+		}
+		
+		if (tasks.size() == 1) {
+			tasks.get(0).compute();
+		} else {
+			ForkJoinTask.invokeAll(tasks);
+		}
+		
+		// Invalid data in any chunk wins over a parser error in an earlier one,
+		// as if the whole text had been decoded before parsing.
+		for (WsvChunkTask<T> task : tasks) {
+			if (task.exception instanceof ReliableTxtException) {
+				throw task.exception;
+			}
+		}
+		ArrayList<T> result = new ArrayList<>();
+		for (WsvChunkTask<T> task : tasks) {
+			if (task.exception != null) {
+				throw task.exception;
+			}
+			result.addAll(task.lines);
+			task.lines = null;
+		}
+		return result;
 	}
 }
\ No newline at end of file
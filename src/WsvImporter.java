@@ -10,33 +10,32 @@ public class WsvImporter {
 	}
 	
 	public void importWsv() {
-		byte[] bytes = stream.readAllBytes();
-		ReliableTxtDocument reliableTxtDocument = new ReliableTxtDocument(bytes);
-		WsvDocument wsvDocument = WsvDocument.parse(reliableTxtDocument.getText());
+		WsvTable table = WsvTable.parseParallel(stream.readAllBytes(), getColumnSelection(stream.getSelectedColumns()));
 		
 		Spreadsheet spreadsheet = spreadsheetDocument.getSpreadsheet(0);
-		setWsvDocument(wsvDocument, spreadsheet, 0, 0);
+		setWsvRows(table, spreadsheet, 0, 0);
 	}
 	
-	private static void setWsvDocument(WsvDocument wsvDocument, Spreadsheet spreadsheet, int offsetX, int offsetY) {
-		int rowIndex = offsetY;
-		int maxColumnIndex = 0;
-		for (WsvLine wsvLine : wsvDocument.Lines) {
-			int columnIndex = offsetX;
-			for (String wsvValue : wsvLine.Values) {
-				if (wsvValue != null) {
-					spreadsheet.setCellText(columnIndex, rowIndex, wsvValue);
-				}
-				columnIndex++;
-			}
-			if (columnIndex > maxColumnIndex) {
-				maxColumnIndex = columnIndex;
-			}
-			spreadsheet.getRowCells(rowIndex).setOptimalHeight(true);
-			rowIndex++;
+	private static WsvColumnSelection getColumnSelection(String[] selectedColumns) {
+		if (selectedColumns == null) {
+			return null;
 		}
-		for (int i=0; i<maxColumnIndex; i++) {
-			spreadsheet.getColumnCells(i).setOptimalWidth(true);
+		int[] columnIndices = new int[selectedColumns.length];
+		for (int i=0; i<selectedColumns.length; i++) {
+			try {
+				columnIndices[i] = Integer.parseInt(selectedColumns[i]);
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Invalid column index \""+selectedColumns[i]+"\"");
+			}
 		}
+		return new WsvColumnSelection(columnIndices);
+	}
+	
+	private static void setWsvRows(WsvTable table, Spreadsheet spreadsheet, int offsetX, int offsetY) {
+		spreadsheet.setCellTexts(offsetX, offsetY, table);
+		
+		CellRange usedArea = spreadsheet.getUsedArea();
+		usedArea.setOptimalWidth(true);
+		usedArea.setOptimalHeight(true);
 	}
 }
\ No newline at end of file